@@ -0,0 +1,84 @@
+package org.example.coinchangeservice.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.dropwizard.jackson.Jackson;
+import org.example.coinchangeservice.resources.CoinChangeResource;
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.DpTableCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP resource path without the network: JSON request bytes -> {@link CoinChangeResource.Request}
+ * -> resource method -> JSON response bytes, plus the (de)serialization steps on their own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoinChangeResourceBenchmark {
+
+    @Param({"1.00", "100.00", "10000.00"})
+    public String amount;
+
+    @Param({"canonical-12", "non-canonical-3"})
+    public String coinSet;
+
+    @Param({"expanded", "counts"})
+    public String format;
+
+    private ObjectMapper mapper;
+    private ObjectReader requestReader;
+    private CoinChangeResource resource;
+    private byte[] requestJson;
+    private CoinChangeResource.Request request;
+    private Object responseEntity;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Jackson.newObjectMapper();
+        requestReader = mapper.readerFor(CoinChangeResource.Request.class);
+        CoinChangeService service = new CoinChangeService(new DpTableCache(16, 8_000_000, new MetricRegistry()));
+        resource = new CoinChangeResource(service, mapper);
+
+        request = new CoinChangeResource.Request();
+        request.targetAmount = Double.parseDouble(amount);
+        request.coinDenominations = CoinChangeServiceBenchmark.COIN_SETS.get(coinSet);
+        requestJson = mapper.writeValueAsBytes(request);
+        responseEntity = resource.minimumCoins(request, format).getEntity();
+    }
+
+    @Benchmark
+    public CoinChangeResource.Request deserializeRequest() throws IOException {
+        return requestReader.readValue(requestJson);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws IOException {
+        return mapper.writeValueAsBytes(responseEntity);
+    }
+
+    @Benchmark
+    public byte[] endToEnd() throws IOException {
+        CoinChangeResource.Request parsed = requestReader.readValue(requestJson);
+        Response response = resource.minimumCoins(parsed, format);
+        return mapper.writeValueAsBytes(response.getEntity());
+    }
+}
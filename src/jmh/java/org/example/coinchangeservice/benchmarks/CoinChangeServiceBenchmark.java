@@ -0,0 +1,86 @@
+package org.example.coinchangeservice.benchmarks;
+
+import com.codahale.metrics.MetricRegistry;
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.DpTableCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Greedy vs DP across amount sizes, denomination set sizes and canonical vs non-canonical sets.
+ * Run with {@code -prof gc} to report the allocation rate of each path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoinChangeServiceBenchmark {
+
+    static final Map<String, List<Double>> COIN_SETS = Map.of(
+            // canonical
+            "canonical-3", List.of(0.01, 0.05, 0.1),
+            "canonical-12", List.of(0.01, 0.05, 0.1, 0.2, 0.5, 1d, 2d, 5d, 10d, 50d, 100d, 1000d),
+            // non-canonical: greedy is not optimal (e.g. 0.60 = 3 x 0.20)
+            "non-canonical-3", List.of(0.01, 0.2, 0.5),
+            "non-canonical-9", List.of(0.01, 0.2, 0.5, 1d, 2d, 5d, 10d, 50d, 100d));
+
+    @Param({"1.00", "100.00", "10000.00"})
+    public String amount;
+
+    @Param({"canonical-3", "canonical-12", "non-canonical-3", "non-canonical-9"})
+    public String coinSet;
+
+    private double targetAmount;
+    private List<Double> coins;
+    private CoinChangeService uncached;
+    private CoinChangeService cached;
+
+    @Setup
+    public void setUp() {
+        targetAmount = Double.parseDouble(amount);
+        coins = COIN_SETS.get(coinSet);
+        uncached = new CoinChangeService();
+        cached = new CoinChangeService(new DpTableCache(16, 8_000_000, new MetricRegistry()));
+    }
+
+    @Benchmark
+    public List<Double> greedy() {
+        return uncached.calculateMinCoins(targetAmount, coins, true);
+    }
+
+    @Benchmark
+    public List<Double> dp() {
+        return uncached.calculateMinCoins(targetAmount, coins, false);
+    }
+
+    @Benchmark
+    public List<Double> dpCached() {
+        return cached.calculateMinCoins(targetAmount, coins, false);
+    }
+
+    /** Algorithm chosen per set by the canonicity check, as the resource does. */
+    @Benchmark
+    public List<Double> auto() {
+        return cached.calculateMinCoins(targetAmount, coins);
+    }
+
+    @Benchmark
+    public Map<Double, Integer> autoCounts() {
+        return cached.calculateCoinCounts(targetAmount, coins);
+    }
+}
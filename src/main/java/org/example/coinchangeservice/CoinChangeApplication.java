@@ -1,18 +1,48 @@
 package org.example.coinchangeservice;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.dropwizard.Application;
 import io.dropwizard.jetty.HttpConnectorFactory;
+import io.dropwizard.lifecycle.AutoCloseableManager;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import io.dropwizard.util.Duration;
 import org.eclipse.jetty.servlets.CrossOriginFilter;
 import org.example.coinchangeservice.health.CoinChangeHealthCheck;
 import org.example.coinchangeservice.health.ExternalServiceClient;
+import org.example.coinchangeservice.health.LazyHealthCheck;
+import org.example.coinchangeservice.health.ReadinessHealthCheck;
 import org.example.coinchangeservice.resources.CoinChangeResource;
+import org.example.coinchangeservice.resources.DrawerResource;
+import org.example.coinchangeservice.resources.FirstRequestTimer;
+import org.example.coinchangeservice.resources.SerializationTimer;
+import org.example.coinchangeservice.service.CoinChangeMetrics;
 import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.Denominations;
+import org.example.coinchangeservice.service.DpTableCache;
+import org.example.coinchangeservice.service.DrawerJournal;
+import org.example.coinchangeservice.service.DrawerRegistry;
+import org.example.coinchangeservice.service.ParallelDp;
+import org.example.coinchangeservice.service.ResultCache;
 
 import javax.servlet.DispatcherType;
 import javax.servlet.FilterRegistration;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 public class CoinChangeApplication extends Application<CoinChangeConfiguration> {
     public static void main(String[] args) throws Exception {
@@ -21,28 +51,145 @@ public class CoinChangeApplication extends Application<CoinChangeConfiguration>
 
     @Override
     public void initialize(Bootstrap<CoinChangeConfiguration> bootstrap) {
-        bootstrap.getObjectMapper().registerSubtypes(HttpConnectorFactory.class);
+        bootstrap.getObjectMapper().registerSubtypes(HttpConnectorFactory.class, VirtualThreadServerFactory.class);
+        bootstrap.addCommand(new TrainCommand(this));
 
     }
 
     @Override
-    public void run(CoinChangeConfiguration configuration, Environment environment) {
+    public void run(CoinChangeConfiguration configuration, Environment environment) throws IOException {
         // Register resources
-        CoinChangeService service = new CoinChangeService();
-        CoinChangeResource resource = new CoinChangeResource(service);
+        ForkJoinPool dpPool = ForkJoinPool.commonPool();
+        if (configuration.getParallelDpParallelism() > 0) {
+            // Own pool: shut down with the server, so its workers do not outlive a stop or a training run
+            dpPool = new ForkJoinPool(configuration.getParallelDpParallelism());
+            environment.lifecycle().manage(
+                    new ExecutorServiceManager(dpPool, Duration.seconds(5), "coin-change-parallel-dp"));
+        }
+        ParallelDp parallelDp = new ParallelDp(dpPool, configuration.getParallelDpThreshold());
+        DpTableCache dpTableCache = new DpTableCache(
+                configuration.getDpCacheMaxTables(),
+                configuration.getDpCacheMaxEntries(),
+                environment.metrics(),
+                parallelDp
+        );
+        CoinChangeMetrics metrics = new CoinChangeMetrics(environment.metrics());
+        // One set of DP permits for every currency's engine, so maxConcurrentDp bounds the process
+        Semaphore dpPermits = configuration.getDpPermits() > 0
+                ? new Semaphore(configuration.getDpPermits())
+                : null;
+        CoinChangeService service = new CoinChangeService(
+                dpTableCache,
+                metrics,
+                configuration.getMaxTargetAmountLimit(),
+                dpPermits,
+                newResultCache(configuration),
+                parallelDp,
+                Denominations.DEFAULT
+        );
+        if (configuration.isPrecomputedTablesEnabled()) {
+            // Warm-up: maps (or builds once) the lookup tables before the first request is served
+            service.loadPrecomputedTables(
+                    Paths.get(configuration.getPrecomputedTablesFile()),
+                    configuration.getPrecomputedHotSets()
+            );
+        }
+        service.prepare(configuration.getPrecomputedHotSets(), false);
+
+        // Currency profiles: one engine each, sharing the DP table cache, ready before the first request
+        Map<String, CoinChangeService> currencies = new HashMap<>();
+        currencies.put(configuration.getDefaultCurrency(), service);
+        for (CurrencyProfile profile : configuration.getCurrencies()) {
+            CoinChangeService engine = new CoinChangeService(
+                    dpTableCache,
+                    metrics,
+                    profile.getMaxTargetAmount(),
+                    dpPermits,
+                    newResultCache(configuration),
+                    parallelDp,
+                    profile.toDenominations()
+            );
+            engine.prepare(profile.getHotSets(), profile.isWarmDpTables());
+            if (currencies.put(profile.getCode(), engine) != null) {
+                throw new IllegalArgumentException("Duplicate currency: " + profile.getCode());
+            }
+        }
+        ThreadPoolExecutor computeExecutor = null;
+        if (configuration.getComputeThreads() > 0) {
+            // Bounded queue and no caller-runs fallback: overload is turned away instead of piling up
+            computeExecutor = new ThreadPoolExecutor(
+                    configuration.getComputeThreads(), configuration.getComputeThreads(),
+                    0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(configuration.getComputeQueueCapacity()),
+                    new ThreadFactoryBuilder().setNameFormat("coin-change-compute-%d").setDaemon(true).build()
+            );
+            environment.lifecycle().manage(
+                    new ExecutorServiceManager(computeExecutor, Duration.seconds(5), "coin-change-compute"));
+        }
+        CoinChangeResource resource = new CoinChangeResource(
+                service,
+                currencies,
+                environment.getObjectMapper(),
+                computeExecutor,
+                configuration.getInlineWorkLimit(),
+                configuration.getRetryAfterSeconds(),
+                toJavaDuration(configuration.getComputeTimeout())
+        );
         environment.jersey().register(resource);
 
-        // Register health checks
-        ExternalServiceClient client = new ExternalServiceClient();
-        CoinChangeHealthCheck healthCheck = new CoinChangeHealthCheck(
+        DrawerJournal journal = null;
+        if (configuration.isDrawerJournalEnabled()) {
+            journal = DrawerJournal.open(
+                    Paths.get(configuration.getDrawerJournalFile()),
+                    configuration.getDrawerJournalCompactAfter()
+            );
+            environment.lifecycle().manage(new AutoCloseableManager(journal));
+        }
+        environment.jersey().register(new DrawerResource(
+                new DrawerRegistry(service, journal),
+                service,
+                computeExecutor,
+                configuration.getInlineWorkLimit(),
+                configuration.getRetryAfterSeconds(),
+                toJavaDuration(configuration.getComputeTimeout())
+        ));
+        environment.jersey().register(new SerializationTimer(environment.metrics()));
+
+        // Startup metrics: JVM start to server started, and to the first response
+        environment.jersey().register(new FirstRequestTimer(environment.metrics()));
+        AtomicLong timeToStarted = new AtomicLong(-1);
+        environment.metrics().register(MetricRegistry.name(CoinChangeApplication.class, "startup", "timeToStarted"),
+                (Gauge<Long>) timeToStarted::get);
+        environment.lifecycle().addServerLifecycleListener(
+                server -> timeToStarted.set(ManagementFactory.getRuntimeMXBean().getUptime()));
+
+        // Register health checks; with lazyStartup they (and their clients) are built on the first check
+        Supplier<CoinChangeHealthCheck> healthCheck = () -> new CoinChangeHealthCheck(
                 configuration.getMaxTargetAmountLimit(),
-                client
+                new ExternalServiceClient()
         );
-        environment.healthChecks().register("coinChange", healthCheck);
+        environment.healthChecks().register("coinChange",
+                configuration.isLazyStartup() ? new LazyHealthCheck(healthCheck) : healthCheck.get());
+        // Readiness probes its own engine without DP table or result cache, so every self-test fills a fresh table
+        ThreadPoolExecutor readinessExecutor = computeExecutor;
+        Supplier<ReadinessHealthCheck> readiness = () -> new ReadinessHealthCheck(
+                new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry())),
+                readinessExecutor,
+                environment.metrics().timer(MetricRegistry.name(CoinChangeResource.class, "computation")),
+                toJavaDuration(configuration.getReadinessSelfTestBudget()),
+                toJavaDuration(configuration.getReadinessP99Budget()),
+                configuration.getReadinessMaxSaturation(),
+                toJavaDuration(configuration.getReadinessInterval())
+        );
+        environment.healthChecks().register("readiness",
+                configuration.isLazyStartup() ? new LazyHealthCheck(readiness) : readiness.get());
 
-        // Enable Cross-Origin Resource Sharing (CORS) to allow frontend React app to call the API
-        final FilterRegistration.Dynamic cors =
-                environment.servlets().addFilter("CORS", CrossOriginFilter.class);
+        // Enable Cross-Origin Resource Sharing (CORS) to allow frontend React app to call the API;
+        // with lazyStartup the filter is created on the first request (a lambda, not a constructor reference,
+        // so the filter class is not even loaded before that)
+        final FilterRegistration.Dynamic cors = configuration.isLazyStartup()
+                ? environment.servlets().addFilter("CORS", new LazyFilter(() -> new CrossOriginFilter()))
+                : environment.servlets().addFilter("CORS", CrossOriginFilter.class);
 
         cors.setInitParameter("allowedOrigins", "*");
         cors.setInitParameter("allowedHeaders", "X-Requested-With,Content-Type,Accept,Origin");
@@ -51,4 +198,15 @@ public class CoinChangeApplication extends Application<CoinChangeConfiguration>
 
     }
 
+    private static ResultCache newResultCache(CoinChangeConfiguration configuration) {
+        return new ResultCache(
+                configuration.getResultCacheMaxSize(),
+                toJavaDuration(configuration.getResultCacheTtl())
+        );
+    }
+
+    private static java.time.Duration toJavaDuration(Duration duration) {
+        return java.time.Duration.ofNanos(duration.toNanoseconds());
+    }
+
 }
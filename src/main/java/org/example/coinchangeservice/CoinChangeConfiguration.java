@@ -1,18 +1,30 @@
 package org.example.coinchangeservice;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.Configuration;
 import io.dropwizard.server.DefaultServerFactory;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.ValidationMethod;
+import org.example.coinchangeservice.service.CoinChangeService;
 
+import javax.validation.Valid;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 public class CoinChangeConfiguration extends Configuration {
 
     @NotNull(message = "maxTargetAmountLimit cannot be null")
     @Min(value = 0, message = "maxTargetAmountLimit cannot be less than 0")
-    @Max(value = 10000, message = "maxTargetAmountLimit cannot be greater than 10000")
+    @Max(value = CoinChangeService.MAX_SUPPORTED_TARGET_AMOUNT,
+            message = "maxTargetAmountLimit cannot be greater than " + CoinChangeService.MAX_SUPPORTED_TARGET_AMOUNT)
     private Double maxTargetAmountLimit = 10000.0;
 
     @JsonProperty
@@ -25,17 +37,377 @@ public class CoinChangeConfiguration extends Configuration {
         this.maxTargetAmountLimit = maxTargetAmountLimit;
     }
 
-    // server
-    private DefaultServerFactory server = new DefaultServerFactory();
+    @Min(value = 1, message = "dpCacheMaxTables must be at least 1")
+    private int dpCacheMaxTables = 16;
 
+    @Min(value = 1, message = "dpCacheMaxEntries must be at least 1")
+    private long dpCacheMaxEntries = 8_000_000;
+
+    @JsonProperty
+    public int getDpCacheMaxTables() {
+        return dpCacheMaxTables;
+    }
+
+    @JsonProperty
+    public void setDpCacheMaxTables(int dpCacheMaxTables) {
+        this.dpCacheMaxTables = dpCacheMaxTables;
+    }
+
+    @JsonProperty
+    public long getDpCacheMaxEntries() {
+        return dpCacheMaxEntries;
+    }
+
+    @JsonProperty
+    public void setDpCacheMaxEntries(long dpCacheMaxEntries) {
+        this.dpCacheMaxEntries = dpCacheMaxEntries;
+    }
+
+    // Compute pool for expensive DP requests; 0 threads computes everything on the request threads
+    @Min(value = 0, message = "computeThreads cannot be less than 0")
+    private int computeThreads = Runtime.getRuntime().availableProcessors();
+
+    @Min(value = 1, message = "computeQueueCapacity must be at least 1")
+    private int computeQueueCapacity = 256;
+
+    @Min(value = 0, message = "inlineWorkLimit cannot be less than 0")
+    private long inlineWorkLimit = 200_000;
+
+    @Min(value = 1, message = "retryAfterSeconds must be at least 1")
+    private int retryAfterSeconds = 1;
+
+    // Requests handed to the compute pool are answered with 503 after this long, queueing included
+    @NotNull(message = "computeTimeout cannot be null")
+    private Duration computeTimeout = Duration.seconds(30);
+
+    @JsonProperty
+    public Duration getComputeTimeout() {
+        return computeTimeout;
+    }
+
+    @JsonProperty
+    public void setComputeTimeout(Duration computeTimeout) {
+        this.computeTimeout = computeTimeout;
+    }
+
+    @JsonProperty
+    public int getComputeThreads() {
+        return computeThreads;
+    }
+
+    @JsonProperty
+    public void setComputeThreads(int computeThreads) {
+        this.computeThreads = computeThreads;
+    }
+
+    @JsonProperty
+    public int getComputeQueueCapacity() {
+        return computeQueueCapacity;
+    }
+
+    @JsonProperty
+    public void setComputeQueueCapacity(int computeQueueCapacity) {
+        this.computeQueueCapacity = computeQueueCapacity;
+    }
+
+    @JsonProperty
+    public long getInlineWorkLimit() {
+        return inlineWorkLimit;
+    }
+
+    @JsonProperty
+    public void setInlineWorkLimit(long inlineWorkLimit) {
+        this.inlineWorkLimit = inlineWorkLimit;
+    }
+
+    @JsonProperty
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    @JsonProperty
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    // Warm-up: hot denomination sets answered from a memory-mapped precomputed table file
+    private boolean precomputedTablesEnabled = false;
+
+    @NotNull(message = "precomputedTablesFile cannot be null")
+    private String precomputedTablesFile = "coin-change-tables.bin";
+
+    @NotNull(message = "precomputedHotSets cannot be null")
+    private List<List<Double>> precomputedHotSets = new ArrayList<>();
+
+    @JsonProperty
+    public boolean isPrecomputedTablesEnabled() {
+        return precomputedTablesEnabled;
+    }
+
+    @JsonProperty
+    public void setPrecomputedTablesEnabled(boolean precomputedTablesEnabled) {
+        this.precomputedTablesEnabled = precomputedTablesEnabled;
+    }
+
+    @JsonProperty
+    public String getPrecomputedTablesFile() {
+        return precomputedTablesFile;
+    }
+
+    @JsonProperty
+    public void setPrecomputedTablesFile(String precomputedTablesFile) {
+        this.precomputedTablesFile = precomputedTablesFile;
+    }
+
+    @JsonProperty
+    public List<List<Double>> getPrecomputedHotSets() {
+        return precomputedHotSets;
+    }
+
+    @JsonProperty
+    public void setPrecomputedHotSets(List<List<Double>> precomputedHotSets) {
+        this.precomputedHotSets = precomputedHotSets;
+    }
+
+    // Bounds concurrent DP fills, e.g. to keep virtual-thread carriers free; 0 means unbounded, or the
+    // server's default with server type virtual-threads (see getDpPermits)
+    @Min(value = 0, message = "maxConcurrentDp cannot be less than 0")
+    private int maxConcurrentDp = 0;
+
+    @JsonProperty
+    public int getMaxConcurrentDp() {
+        return maxConcurrentDp;
+    }
+
+    /**
+     * @return DP fills allowed at once, 0 for no limit: {@code maxConcurrentDp} if set, else a bound derived from
+     *   the processor count on virtual threads ({@link VirtualThreadServerFactory#defaultMaxConcurrentDp()})
+     */
+    @JsonIgnore
+    public int getDpPermits() {
+        if (maxConcurrentDp == 0 && getServerFactory() instanceof VirtualThreadServerFactory) {
+            return VirtualThreadServerFactory.defaultMaxConcurrentDp();
+        }
+        return maxConcurrentDp;
+    }
+
+    @JsonProperty
+    public void setMaxConcurrentDp(int maxConcurrentDp) {
+        this.maxConcurrentDp = maxConcurrentDp;
+    }
+
+    // DP tables with at least this many new entries are filled in parallel on a fork-join pool
+    @Min(value = 1, message = "parallelDpThreshold must be at least 1")
+    private int parallelDpThreshold = 262_144;
+
+    // 0 uses the JVM's common fork-join pool
+    @Min(value = 0, message = "parallelDpParallelism cannot be less than 0")
+    private int parallelDpParallelism = 0;
+
+    @JsonProperty
+    public int getParallelDpThreshold() {
+        return parallelDpThreshold;
+    }
+
+    @JsonProperty
+    public void setParallelDpThreshold(int parallelDpThreshold) {
+        this.parallelDpThreshold = parallelDpThreshold;
+    }
+
+    @JsonProperty
+    public int getParallelDpParallelism() {
+        return parallelDpParallelism;
+    }
+
+    @JsonProperty
+    public void setParallelDpParallelism(int parallelDpParallelism) {
+        this.parallelDpParallelism = parallelDpParallelism;
+    }
+
+    // DP results shared by identical concurrent requests and cached briefly; 0 entries only coalesces
+    @Min(value = 0, message = "resultCacheMaxSize cannot be less than 0")
+    private long resultCacheMaxSize = 10_000;
+
+    @NotNull(message = "resultCacheTtl cannot be null")
+    private Duration resultCacheTtl = Duration.seconds(30);
+
+    @JsonProperty
+    public long getResultCacheMaxSize() {
+        return resultCacheMaxSize;
+    }
+
+    @JsonProperty
+    public void setResultCacheMaxSize(long resultCacheMaxSize) {
+        this.resultCacheMaxSize = resultCacheMaxSize;
+    }
+
+    @JsonProperty
+    public Duration getResultCacheTtl() {
+        return resultCacheTtl;
+    }
+
+    @JsonProperty
+    public void setResultCacheTtl(Duration resultCacheTtl) {
+        this.resultCacheTtl = resultCacheTtl;
+    }
+
+    // Cash drawers are kept in memory; the journal restores them after a restart
+    private boolean drawerJournalEnabled = false;
+
+    @NotNull(message = "drawerJournalFile cannot be null")
+    private String drawerJournalFile = "drawers.journal";
+
+    @Min(value = 1, message = "drawerJournalCompactAfter must be at least 1")
+    private int drawerJournalCompactAfter = 10_000;
+
+    @JsonProperty
+    public boolean isDrawerJournalEnabled() {
+        return drawerJournalEnabled;
+    }
+
+    @JsonProperty
+    public void setDrawerJournalEnabled(boolean drawerJournalEnabled) {
+        this.drawerJournalEnabled = drawerJournalEnabled;
+    }
+
+    @JsonProperty
+    public String getDrawerJournalFile() {
+        return drawerJournalFile;
+    }
+
+    @JsonProperty
+    public void setDrawerJournalFile(String drawerJournalFile) {
+        this.drawerJournalFile = drawerJournalFile;
+    }
+
+    @JsonProperty
+    public int getDrawerJournalCompactAfter() {
+        return drawerJournalCompactAfter;
+    }
+
+    @JsonProperty
+    public void setDrawerJournalCompactAfter(int drawerJournalCompactAfter) {
+        this.drawerJournalCompactAfter = drawerJournalCompactAfter;
+    }
+
+    // Defers non-essential setup (CORS filter, health checks) until first use, for faster cold starts
+    private boolean lazyStartup = false;
+
+    @JsonProperty
+    public boolean isLazyStartup() {
+        return lazyStartup;
+    }
+
+    @JsonProperty
+    public void setLazyStartup(boolean lazyStartup) {
+        this.lazyStartup = lazyStartup;
+    }
+
+    // Readiness check: timed self-test, compute pool saturation and recent computation p99, rechecked per interval
+    @NotNull(message = "readinessSelfTestBudget cannot be null")
+    private Duration readinessSelfTestBudget = Duration.milliseconds(50);
+
+    @NotNull(message = "readinessP99Budget cannot be null")
+    private Duration readinessP99Budget = Duration.milliseconds(500);
+
+    @DecimalMin(value = "0", message = "readinessMaxSaturation cannot be less than 0")
+    @DecimalMax(value = "1", message = "readinessMaxSaturation cannot be greater than 1")
+    private double readinessMaxSaturation = 0.9;
+
+    @NotNull(message = "readinessInterval cannot be null")
+    private Duration readinessInterval = Duration.seconds(1);
+
+    @JsonProperty
+    public Duration getReadinessSelfTestBudget() {
+        return readinessSelfTestBudget;
+    }
+
+    @JsonProperty
+    public void setReadinessSelfTestBudget(Duration readinessSelfTestBudget) {
+        this.readinessSelfTestBudget = readinessSelfTestBudget;
+    }
+
+    @JsonProperty
+    public Duration getReadinessP99Budget() {
+        return readinessP99Budget;
+    }
+
+    @JsonProperty
+    public void setReadinessP99Budget(Duration readinessP99Budget) {
+        this.readinessP99Budget = readinessP99Budget;
+    }
+
+    @JsonProperty
+    public double getReadinessMaxSaturation() {
+        return readinessMaxSaturation;
+    }
+
+    @JsonProperty
+    public void setReadinessMaxSaturation(double readinessMaxSaturation) {
+        this.readinessMaxSaturation = readinessMaxSaturation;
+    }
+
+    @JsonProperty
+    public Duration getReadinessInterval() {
+        return readinessInterval;
+    }
+
+    @JsonProperty
+    public void setReadinessInterval(Duration readinessInterval) {
+        this.readinessInterval = readinessInterval;
+    }
+
+    // Currency profiles; the built-in coin set (0.01 to 1000) serves requests without a currency
+    @NotEmpty(message = "defaultCurrency cannot be empty")
+    private String defaultCurrency = "EUR";
+
+    @Valid
+    @NotNull(message = "currencies cannot be null")
+    private List<CurrencyProfile> currencies = new ArrayList<>();
+
+    @JsonProperty
+    public String getDefaultCurrency() {
+        return defaultCurrency;
+    }
+
+    @JsonProperty
+    public void setDefaultCurrency(String defaultCurrency) {
+        this.defaultCurrency = defaultCurrency;
+    }
+
+    @JsonProperty
+    public List<CurrencyProfile> getCurrencies() {
+        return currencies;
+    }
+
+    @JsonProperty
+    public void setCurrencies(List<CurrencyProfile> currencies) {
+        this.currencies = currencies;
+    }
+
+    // defaultCurrency is the built-in coin set, so a profile cannot take its code
+    @JsonIgnore
+    @ValidationMethod(message = "currencies cannot contain defaultCurrency, which is the built-in coin set")
+    public boolean isDefaultCurrencyNotProfiled() {
+        return currencies == null || currencies.stream().noneMatch(c -> Objects.equals(c.getCode(), defaultCurrency));
+    }
+
+    @JsonIgnore
+    @ValidationMethod(message = "currencies cannot contain the same code twice")
+    public boolean isCurrencyCodesUnique() {
+        return currencies == null
+                || currencies.stream().map(CurrencyProfile::getCode).distinct().count() == currencies.size();
+    }
+
+    // server: backed by the factory Dropwizard builds the server from (type: default or virtual-threads)
     @JsonProperty("server")
     public DefaultServerFactory getServer() {
-        return server;
+        return (DefaultServerFactory) getServerFactory();
     }
 
     @JsonProperty("server")
     public void setServer(DefaultServerFactory server) {
-        this.server = server;
+        setServerFactory(server);
     }
 }
 
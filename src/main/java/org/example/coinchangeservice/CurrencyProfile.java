@@ -0,0 +1,117 @@
+package org.example.coinchangeservice;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.Denominations;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One entry of {@code currencies} in the configuration: a currency that requests select with
+ * {@code "currency": "<code>"}, with its own denominations and limits. Each gets its own engine, prepared at
+ * startup.
+ */
+public class CurrencyProfile {
+
+    @NotEmpty(message = "currency code cannot be empty")
+    private String code;
+
+    // Decimal places of the minor unit: 2 for cents, 0 for currencies without one
+    @Min(value = 0, message = "currency scale cannot be less than 0")
+    @Max(value = Denominations.MAX_SCALE, message = "currency scale cannot be greater than " + Denominations.MAX_SCALE)
+    private int scale = 2;
+
+    // Accepted coins in minor units
+    @NotEmpty(message = "currency denominations cannot be empty")
+    @Size(max = Denominations.MAX_SIZE,
+            message = "currency denominations cannot have more than " + Denominations.MAX_SIZE + " entries")
+    private List<@NotNull @Min(value = 1, message = "currency denominations must be positive") Integer>
+            denominations = new ArrayList<>();
+
+    @NotNull(message = "currency maxTargetAmount cannot be null")
+    @Min(value = 0, message = "currency maxTargetAmount cannot be less than 0")
+    @Max(value = CoinChangeService.MAX_SUPPORTED_TARGET_AMOUNT,
+            message = "currency maxTargetAmount cannot be greater than " + CoinChangeService.MAX_SUPPORTED_TARGET_AMOUNT)
+    private Double maxTargetAmount = CoinChangeService.DEFAULT_MAX_TARGET_AMOUNT;
+
+    // Denomination sets expected to be hot, as request values; their greedy verdict is settled at startup
+    @NotNull(message = "currency hotSets cannot be null")
+    private List<List<Double>> hotSets = new ArrayList<>();
+
+    // Also fills the DP tables of the non-canonical hot sets at startup
+    private boolean warmDpTables = false;
+
+    @JsonProperty
+    public String getCode() {
+        return code;
+    }
+
+    @JsonProperty
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    @JsonProperty
+    public int getScale() {
+        return scale;
+    }
+
+    @JsonProperty
+    public void setScale(int scale) {
+        this.scale = scale;
+    }
+
+    @JsonProperty
+    public List<Integer> getDenominations() {
+        return denominations;
+    }
+
+    @JsonProperty
+    public void setDenominations(List<Integer> denominations) {
+        this.denominations = denominations;
+    }
+
+    @JsonProperty
+    public Double getMaxTargetAmount() {
+        return maxTargetAmount;
+    }
+
+    @JsonProperty
+    public void setMaxTargetAmount(Double maxTargetAmount) {
+        this.maxTargetAmount = maxTargetAmount;
+    }
+
+    @JsonProperty
+    public List<List<Double>> getHotSets() {
+        return hotSets;
+    }
+
+    @JsonProperty
+    public void setHotSets(List<List<Double>> hotSets) {
+        this.hotSets = hotSets;
+    }
+
+    @JsonProperty
+    public boolean isWarmDpTables() {
+        return warmDpTables;
+    }
+
+    @JsonProperty
+    public void setWarmDpTables(boolean warmDpTables) {
+        this.warmDpTables = warmDpTables;
+    }
+
+    /**
+     * @return the profile's denominations
+     * @throws IllegalArgumentException if they do not form a valid set
+     */
+    public Denominations toDenominations() {
+        return new Denominations(scale, denominations.stream().mapToInt(Integer::intValue).toArray());
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.coinchangeservice;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Servlet filter that creates and initializes the real filter on the first request it sees, so neither its
+ * classes nor its setup cost are paid during startup. Init parameters set on the registration are passed on.
+ */
+public class LazyFilter implements Filter {
+
+    private final Supplier<? extends Filter> factory;
+    private FilterConfig config;
+    private volatile Filter delegate;
+
+    public LazyFilter(Supplier<? extends Filter> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        this.config = filterConfig;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        delegate().doFilter(request, response, chain);
+    }
+
+    private Filter delegate() throws ServletException {
+        Filter filter = delegate;
+        if (filter == null) {
+            synchronized (this) {
+                filter = delegate;
+                if (filter == null) {
+                    filter = factory.get();
+                    filter.init(config);
+                    delegate = filter;
+                }
+            }
+        }
+        return filter;
+    }
+
+    @Override
+    public void destroy() {
+        Filter filter = delegate;
+        if (filter != null) {
+            filter.destroy();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.coinchangeservice;
+
+import io.dropwizard.Application;
+import io.dropwizard.cli.EnvironmentCommand;
+import io.dropwizard.jetty.ConnectorFactory;
+import io.dropwizard.jetty.HttpConnectorFactory;
+import io.dropwizard.server.DefaultServerFactory;
+import io.dropwizard.setup.Environment;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+/**
+ * {@code java -jar app.jar train config.yml}: a training run for class-data sharing. Starts the server on free
+ * ports, sends it one request of every kind (so the classes of every code path get loaded, including those set
+ * up lazily), then stops it and exits. Run with {@code -XX:ArchiveClassesAtExit=app.jsa} to dump the loaded
+ * classes into an archive that later starts map with {@code -XX:SharedArchiveFile=app.jsa}.
+ */
+public class TrainCommand extends EnvironmentCommand<CoinChangeConfiguration> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TrainCommand.class);
+
+    private static final String CHANGE = "{\"targetAmount\":%s,\"coinDenominations\":%s}";
+
+    public TrainCommand(Application<CoinChangeConfiguration> application) {
+        super(application, "train", "Runs the server against a fixed set of requests and exits (AppCDS training)");
+    }
+
+    @Override
+    protected void run(Environment environment, Namespace namespace, CoinChangeConfiguration configuration)
+            throws Exception {
+        if (configuration.getServerFactory() instanceof DefaultServerFactory) {
+            DefaultServerFactory serverFactory = (DefaultServerFactory) configuration.getServerFactory();
+            freePorts(serverFactory.getApplicationConnectors());
+            freePorts(serverFactory.getAdminConnectors());
+        }
+        Server server = configuration.getServerFactory().build(environment);
+        server.start();
+        try {
+            // Application connectors come first, the admin connector last
+            int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+            int adminPort = ((ServerConnector) server.getConnectors()[server.getConnectors().length - 1]).getLocalPort();
+            String api = "http://localhost:" + port;
+            HttpClient http = HttpClient.newHttpClient();
+
+            send(http, post(api + "/coin-change", String.format(CHANGE, "7.03", "[0.01,0.5,1,5,10]")));
+            send(http, post(api + "/coin-change?format=counts", String.format(CHANGE, "0.6", "[0.01,0.2,0.5]")));
+            send(http, post(api + "/coin-change", "{\"targetAmount\":0.6,\"coinDenominations\":[0.01,0.2,0.5],"
+                    + "\"availableCounts\":[10,1,1]}"));
+            send(http, post(api + "/coin-change", "{\"amountMinor\":703,\"denominationsMinor\":[1,50,100,500,1000]}"));
+            send(http, post(api + "/coin-change", "{\"currency\":\"" + configuration.getDefaultCurrency()
+                    + "\",\"targetAmount\":7.03,\"coinDenominations\":[0.01,0.5,1,5,10]}"));
+            send(http, post(api + "/coin-change/batch",
+                    "[" + String.format(CHANGE, "3", "[1,2]") + "," + String.format(CHANGE, "1", "[0.03]") + "]"));
+            send(http, post(api + "/coin-change/alternatives?limit=3", String.format(CHANGE, "0.6", "[0.01,0.2,0.5]")));
+            send(http, HttpRequest.newBuilder(URI.create(api + "/coin-change/stream"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofString(String.format(CHANGE, "1.5", "[0.5,1]") + "\n")));
+            send(http, HttpRequest.newBuilder(URI.create(api + "/coin-change"))
+                    .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
+                    .header("Origin", "http://localhost")
+                    .header("Access-Control-Request-Method", "POST"));
+            send(http, HttpRequest.newBuilder(URI.create("http://localhost:" + adminPort + "/healthcheck")));
+            send(http, HttpRequest.newBuilder(URI.create("http://localhost:" + adminPort + "/metrics")));
+            LOGGER.info("Training run finished");
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static void freePorts(List<ConnectorFactory> connectors) {
+        for (ConnectorFactory connector : connectors) {
+            if (connector instanceof HttpConnectorFactory) {
+                ((HttpConnectorFactory) connector).setPort(0);
+            }
+        }
+    }
+
+    private static HttpRequest.Builder post(String uri, String json) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static void send(HttpClient http, HttpRequest.Builder request) throws Exception {
+        HttpRequest built = request.build();
+        int status = http.send(built, HttpResponse.BodyHandlers.discarding()).statusCode();
+        LOGGER.info("{} {}: {}", built.method(), built.uri(), status);
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.coinchangeservice;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Jetty thread pool that starts a new virtual thread per task instead of pooling platform threads,
+ * so the number of concurrent connections is not bounded by a thread count.
+ */
+final class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private final ThreadFactory factory;
+    private final AtomicInteger threads = new AtomicInteger();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    VirtualThreadPool(ThreadFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        threads.incrementAndGet();
+        factory.newThread(() -> {
+            try {
+                task.run();
+            } finally {
+                threads.decrementAndGet();
+            }
+        }).start();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        stopped.countDown();
+        super.doStop();
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        stopped.await();
+    }
+
+    /** Number of tasks currently running. */
+    @Override
+    public int getThreads() {
+        return threads.get();
+    }
+
+    /** Virtual threads are never kept idle. */
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
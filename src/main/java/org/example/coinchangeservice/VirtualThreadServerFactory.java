@@ -0,0 +1,49 @@
+package org.example.coinchangeservice;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import io.dropwizard.server.DefaultServerFactory;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * {@code server: type: virtual-threads}: the default server, but every request (and connector task) runs on its
+ * own virtual thread. {@code maxThreads} and friends no longer apply. CPU-heavy DP is bounded separately, by the
+ * compute pool and {@code maxConcurrentDp}, so it cannot monopolize the carrier threads; with this server type
+ * {@code maxConcurrentDp: 0} means {@link #defaultMaxConcurrentDp()} rather than unbounded.
+ *
+ * On a JDK without virtual threads this falls back to the default thread pool with a warning.
+ */
+@JsonTypeName("virtual-threads")
+public class VirtualThreadServerFactory extends DefaultServerFactory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadServerFactory.class);
+
+    /**
+     * @return DP fills allowed at once when {@code maxConcurrentDp} is not set: all carriers but one, so request
+     *   handling always has a carrier to run on
+     */
+    public static int defaultMaxConcurrentDp() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    }
+
+    @Override
+    protected ThreadPool createThreadPool(MetricRegistry metricRegistry) {
+        ThreadFactory factory = VirtualThreads.factory("dw-virtual-");
+        if (factory == null) {
+            LOGGER.warn("Virtual threads need JDK 21 or later (running {}); using the default thread pool",
+                    Runtime.version());
+            return super.createThreadPool(metricRegistry);
+        }
+
+        VirtualThreadPool threadPool = new VirtualThreadPool(factory);
+        metricRegistry.register(name(VirtualThreadPool.class, "dw", "active"), (Gauge<Integer>) threadPool::getThreads);
+        return threadPool;
+    }
+}
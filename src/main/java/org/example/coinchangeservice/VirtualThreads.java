@@ -0,0 +1,33 @@
+package org.example.coinchangeservice;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (JDK 21+) while the project still compiles for Java 17.
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return a factory creating virtual threads named {@code prefix0}, {@code prefix1}, ...,
+     *   or null if the running JDK has no virtual threads
+     */
+    static ThreadFactory factory(String prefix) {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Method name = builderType.getMethod("name", String.class, long.class);
+            Method factory = builderType.getMethod("factory");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) factory.invoke(name.invoke(builder, prefix, 0L));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static boolean isSupported() {
+        return factory("probe-") != null;
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.coinchangeservice.health;
 
 import com.codahale.metrics.health.HealthCheck;
+import org.example.coinchangeservice.service.CoinChangeService;
 
 public class CoinChangeHealthCheck extends HealthCheck {
 
@@ -15,7 +16,7 @@ public class CoinChangeHealthCheck extends HealthCheck {
     @Override
     protected Result check() throws Exception {
         // Check if configuration value is valid
-        if (maxTargetAmountLimit <= 0 || maxTargetAmountLimit > 10000) {
+        if (maxTargetAmountLimit <= 0 || maxTargetAmountLimit > CoinChangeService.MAX_SUPPORTED_TARGET_AMOUNT) {
             return Result.unhealthy("Invalid maxTargetAmountLimit configuration: " + maxTargetAmountLimit);
         }
 
@@ -0,0 +1,33 @@
+package org.example.coinchangeservice.health;
+
+import com.codahale.metrics.health.HealthCheck;
+
+import java.util.function.Supplier;
+
+/**
+ * Health check built on its first run rather than at startup, together with whatever clients it needs.
+ */
+public class LazyHealthCheck extends HealthCheck {
+
+    private final Supplier<? extends HealthCheck> factory;
+    private volatile HealthCheck delegate;
+
+    public LazyHealthCheck(Supplier<? extends HealthCheck> factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    protected Result check() {
+        HealthCheck check = delegate;
+        if (check == null) {
+            synchronized (this) {
+                check = delegate;
+                if (check == null) {
+                    check = factory.get();
+                    delegate = check;
+                }
+            }
+        }
+        return check.execute();
+    }
+}
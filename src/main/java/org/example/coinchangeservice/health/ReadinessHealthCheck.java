@@ -0,0 +1,128 @@
+package org.example.coinchangeservice.health;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+import org.example.coinchangeservice.service.CoinChangeService;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Readiness: whether this instance is answering fast enough to take more traffic. Each run
+ * <ul>
+ *   <li>times a greedy and an uncached DP solve on the engine's code paths and checks their answers,</li>
+ *   <li>reads how full the compute pool is (running plus queued tasks over threads plus queue slots), and</li>
+ *   <li>reads the p99 of the request computation timer over its sliding window (the last minute); an empty
+ *       window, i.e. no recent traffic, passes.</li>
+ * </ul>
+ * A wrong answer is reported as {@code failed}; a blown latency budget or a saturated pool as {@code degraded}.
+ * Both are unhealthy, so a load balancer polling the health check steers traffic away. The result is reused
+ * for {@code interval}, so polling every second costs at most one self-test (a millisecond or two) per
+ * interval.
+ */
+public class ReadinessHealthCheck extends HealthCheck {
+
+    // 7.03 with 0.01, 0.5, 1, 5, 10: greedy is optimal
+    private static final long GREEDY_AMOUNT = 703;
+    private static final int[] GREEDY_COINS = {1, 50, 100, 500, 1000};
+    private static final int[] GREEDY_COUNTS = {3, 0, 2, 1, 0};
+
+    // 999.60 with 0.01, 0.2, 0.5, 1000: greedy would end with ten 0.01 coins. The 1000 coin lifts the reduction
+    // bound (CoinSystem#reduce) to ~400,000, so the amount is not reduced and the DP fills ~400,000 cells
+    private static final long DP_AMOUNT = 99_960;
+    private static final int[] DP_COINS = {1, 20, 50, 100_000};
+    private static final int[] DP_COUNTS = {0, 3, 1998, 0};
+
+    private final CoinChangeService probe;
+    private final ThreadPoolExecutor computeExecutor;
+    private final Timer computationTimer;
+    private final long selfTestBudgetNanos;
+    private final long p99BudgetNanos;
+    private final double maxSaturation;
+    private final long intervalNanos;
+
+    private Result last;
+    private long lastRun;
+
+    /**
+     * @param probe            engine to self-test; should not share its DP table or result cache with the
+     *                         served engines, or the DP probe would be a cache hit
+     * @param computeExecutor  pool of expensive requests, or null if they run on the request threads
+     * @param computationTimer request computation timer whose p99 is checked; needs a time-windowed reservoir
+     *                         (such as {@code SlidingTimeWindowArrayReservoir}) so that old samples age out
+     * @param interval         how long a result is reused
+     */
+    public ReadinessHealthCheck(CoinChangeService probe, ThreadPoolExecutor computeExecutor, Timer computationTimer,
+                                java.time.Duration selfTestBudget, java.time.Duration p99Budget,
+                                double maxSaturation, java.time.Duration interval) {
+        this.probe = probe;
+        this.computeExecutor = computeExecutor;
+        this.computationTimer = computationTimer;
+        this.selfTestBudgetNanos = selfTestBudget.toNanos();
+        this.p99BudgetNanos = p99Budget.toNanos();
+        this.maxSaturation = maxSaturation;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    @Override
+    protected synchronized Result check() {
+        long now = System.nanoTime();
+        if (last == null || now - lastRun >= intervalNanos) {
+            last = run();
+            lastRun = now;
+        }
+        return last;
+    }
+
+    private Result run() {
+        long dpCells = probe.dpWork(DP_AMOUNT, probe.denominations().mask(DP_COINS, DP_COINS.length));
+        long start = System.nanoTime();
+        int[] greedy = probe.solve(GREEDY_AMOUNT, GREEDY_COINS, true);
+        long greedyNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int[] dp = probe.solve(DP_AMOUNT, DP_COINS, false);
+        long dpNanos = System.nanoTime() - start;
+
+        double saturation = saturation();
+        Snapshot snapshot = computationTimer.getSnapshot();
+        long p99Nanos = snapshot.size() == 0 ? 0 : (long) snapshot.get99thPercentile();
+
+        ResultBuilder result = Result.builder()
+                .withDetail("selfTestGreedyMicros", TimeUnit.NANOSECONDS.toMicros(greedyNanos))
+                .withDetail("selfTestDpMicros", TimeUnit.NANOSECONDS.toMicros(dpNanos))
+                .withDetail("selfTestDpCells", dpCells)
+                .withDetail("computeSaturation", saturation)
+                .withDetail("computationP99Millis", p99Nanos / 1e6)
+                .withDetail("computationSamples", snapshot.size());
+        if (!Arrays.equals(greedy, GREEDY_COUNTS) || !Arrays.equals(dp, DP_COUNTS)) {
+            return result.unhealthy().withDetail("state", "failed")
+                    .withMessage("Self-test returned a wrong answer").build();
+        }
+        String reason = null;
+        if (greedyNanos + dpNanos > selfTestBudgetNanos) {
+            reason = "Self-test took " + TimeUnit.NANOSECONDS.toMillis(greedyNanos + dpNanos) + " ms";
+        } else if (saturation > maxSaturation) {
+            reason = "Compute pool is " + Math.round(saturation * 100) + "% full";
+        } else if (p99Nanos > p99BudgetNanos) {
+            reason = "Computation p99 is " + TimeUnit.NANOSECONDS.toMillis(p99Nanos) + " ms";
+        }
+        if (reason != null) {
+            return result.unhealthy().withDetail("state", "degraded").withMessage(reason).build();
+        }
+        return result.healthy().withDetail("state", "ready").build();
+    }
+
+    /**
+     * @return running plus queued tasks over threads plus queue slots, from 0 to 1; 0 without a pool
+     */
+    private double saturation() {
+        if (computeExecutor == null) {
+            return 0;
+        }
+        int queued = computeExecutor.getQueue().size();
+        int capacity = computeExecutor.getMaximumPoolSize() + queued + computeExecutor.getQueue().remainingCapacity();
+        return (double) (computeExecutor.getActiveCount() + queued) / capacity;
+    }
+}
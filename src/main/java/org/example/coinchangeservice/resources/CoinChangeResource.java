@@ -1,72 +1,878 @@
 package org.example.coinchangeservice.resources;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import io.dropwizard.jackson.Jackson;
+import org.example.coinchangeservice.service.AmountTooLargeException;
 import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.Denominations;
+import org.example.coinchangeservice.service.MinorUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.codahale.metrics.MetricRegistry.name;
 
 @Path("/coin-change")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class CoinChangeResource {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoinChangeResource.class);
+
     private final CoinChangeService service;
+    private final Map<String, CoinChangeService> currencies;
+    private final Timer validationTimer;
+    private final Timer computationTimer;
+    private final ObjectReader requestReader;
+    private final ObjectWriter resultWriter;
+
+    private final ThreadPoolExecutor computeExecutor;
+    private final long inlineWorkLimit;
+    private final int retryAfterSeconds;
+    private final Duration computeTimeout;
+    private final Meter rejected;
+    private final Meter timedOut;
 
     public CoinChangeResource(CoinChangeService service) {
+        this(service, Jackson.newObjectMapper());
+    }
+
+    public CoinChangeResource(CoinChangeService service, ObjectMapper mapper) {
+        this(service, mapper, null, 0, 0);
+    }
+
+    /**
+     * @param computeExecutor   bounded pool for expensive computations, or null to compute everything on the
+     *                          request thread
+     * @param inlineWorkLimit   requests needing at most this many DP cells (see {@link CoinChangeService#dpWork})
+     *                          are computed on the request thread
+     * @param retryAfterSeconds Retry-After sent when the pool's queue is full
+     */
+    public CoinChangeResource(CoinChangeService service, ObjectMapper mapper, ThreadPoolExecutor computeExecutor,
+                              long inlineWorkLimit, int retryAfterSeconds) {
+        this(service, Map.of(), mapper, computeExecutor, inlineWorkLimit, retryAfterSeconds);
+    }
+
+    /**
+     * @param service    engine of the default currency, for requests that do not name one
+     * @param currencies engines of the currency profiles by code (requests' {@code currency}); may include the
+     *                   default currency's
+     */
+    public CoinChangeResource(CoinChangeService service, Map<String, CoinChangeService> currencies,
+                              ObjectMapper mapper, ThreadPoolExecutor computeExecutor, long inlineWorkLimit,
+                              int retryAfterSeconds) {
+        this(service, currencies, mapper, computeExecutor, inlineWorkLimit, retryAfterSeconds,
+                DEFAULT_COMPUTE_TIMEOUT);
+    }
+
+    /**
+     * @param computeTimeout how long a request handed to the compute pool may take, queueing included, before
+     *                       it is answered with 503
+     */
+    public CoinChangeResource(CoinChangeService service, Map<String, CoinChangeService> currencies,
+                              ObjectMapper mapper, ThreadPoolExecutor computeExecutor, long inlineWorkLimit,
+                              int retryAfterSeconds, Duration computeTimeout) {
         this.service = service;
+        this.currencies = Map.copyOf(currencies);
+        this.computeExecutor = computeExecutor;
+        this.inlineWorkLimit = inlineWorkLimit;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.computeTimeout = computeTimeout;
+        this.rejected = service.metrics().registry().meter(name(CoinChangeResource.class, "compute", "rejected"));
+        this.timedOut = service.metrics().registry().meter(name(CoinChangeResource.class, "compute", "timedOut"));
+        if (computeExecutor != null) {
+            service.metrics().registry().register(name(CoinChangeResource.class, "compute", "queueDepth"),
+                    (Gauge<Integer>) () -> computeExecutor.getQueue().size());
+            service.metrics().registry().register(name(CoinChangeResource.class, "compute", "active"),
+                    (Gauge<Integer>) computeExecutor::getActiveCount);
+        }
+        this.validationTimer = service.metrics().registry().timer(name(CoinChangeResource.class, "validation"));
+        // Last minute only: readiness gates on its p99, which must reflect current traffic and empty when idle
+        this.computationTimer = service.metrics().registry().timer(name(CoinChangeResource.class, "computation"),
+                () -> new Timer(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES)));
+        this.requestReader = mapper.readerFor(Request.class);
+        // Streamed results are flushed explicitly, not after every value
+        this.resultWriter = mapper.writerFor(BatchResult.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
+    /** Compute timeout when none is configured. */
+    public static final Duration DEFAULT_COMPUTE_TIMEOUT = Duration.ofSeconds(30);
+
+    /** Newline-delimited JSON: one request (or result) object per line. */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /** Streamed results are flushed at least this often, and whenever no more input is immediately available. */
+    private static final int STREAM_FLUSH_INTERVAL = 256;
+
+    /** Default response shape: one list element per coin, sorted ascending. */
+    public static final String FORMAT_EXPANDED = "expanded";
+    /** Compact response shape: {denomination: count} pairs, without expanding the coin list. */
+    public static final String FORMAT_COUNTS = "counts";
+
+    /** Valid requests too large to compute (not in {@link Response.Status}). */
+    static final int UNPROCESSABLE_ENTITY = 422;
 
-    private static final Set<Double> ALLOWED_COINS = Set.of(
-            0.01, 0.05, 0.1, 0.2, 0.5, 1d, 2d, 5d, 10d, 50d, 100d, 1000d);
+    /** Upper bound on the number of items accepted by one batch request. */
+    public static final int MAX_BATCH_SIZE = 10000;
 
+    /** Largest page of alternatives, and how far into the alternatives a page may start. */
+    public static final int MAX_ALTERNATIVES_PAGE = 100;
+    public static final int MAX_ALTERNATIVES_OFFSET = 10000;
+
+    /**
+     * A request as sent by clients. JSON bodies are read by {@link RequestDeserializer} directly into a raw
+     * internal form, without boxing any coin; the public fields are only filled when a request is built in code.
+     * Either way, {@link #decode} then resolves the request against its currency's engine: amount in minor
+     * units, denominations as a {@link Denominations} mask.
+     * <p>
+     * Amounts and coins are given either as decimals ({@code targetAmount}, {@code coinDenominations}; JSON
+     * numbers or strings, read exactly) or as integers in minor units, e.g. cents ({@code amountMinor},
+     * {@code denominationsMinor}).
+     */
+    @JsonDeserialize(using = RequestDeserializer.class)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     public static class Request {
+        /** Target amount in major units; null (or omitted) when {@link #amountMinor} is used instead. */
         @JsonProperty
-        public double targetAmount;
+        public Double targetAmount;
 
         @JsonProperty
         public List<Double> coinDenominations;
+
+        /** Target amount in minor units; takes the place of {@link #targetAmount} when set. */
+        @JsonProperty
+        public Long amountMinor;
+
+        /** Coin denominations in minor units; takes the place of {@link #coinDenominations}. */
+        @JsonProperty
+        public List<Integer> denominationsMinor;
+
+        /**
+         * Optional inventory: how many coins of each entry of {@link #coinDenominations} are available (same
+         * order and length). Without it the supply of every denomination is unlimited.
+         */
+        @JsonProperty
+        public List<Integer> availableCounts;
+
+        /** Currency profile to use, by code; the default currency when null. */
+        @JsonProperty
+        public String currency;
+
+        // Raw form, filled by RequestDeserializer: decimals at RequestDeserializer.SCALE, or minor units
+        boolean parsed;
+        long rawAmount;
+        boolean amountInMinorUnits;
+        long[] rawCoins;              // MinorUnits.INVALID for coins that are invalid in any currency
+        int coinCount;
+        boolean coinsInMinorUnits;
+        String unparsedCoin;          // text of the first of those, for the error message
+        int[] rawCounts;              // null without an inventory
+        int countCount;
+
+        // Internal form, derived by decode()
+        CoinChangeService engine;     // the currency's engine; null until decoded
+        long amountCents;
+        int denominationMask;
+        String invalidDenomination;   // first unaccepted coin, for the error message
+        int[] available;              // inventory per denomination of the mask, ascending; null if unlimited
+        String invalidInventory;
+        String invalidRequest;        // unparseable amount or conflicting fields
+
+        void rejectDenomination(String coin) {
+            if (invalidDenomination == null) {
+                invalidDenomination = coin;
+            }
+        }
+
+        void reject(String error) {
+            if (invalidRequest == null) {
+                invalidRequest = error;
+            }
+        }
+
+        /**
+         * Derives {@link #available} from the inventory as sent: {@code counts[p]} coins of the denomination at
+         * position p of the request, whose {@link Denominations} bit is {@code bits[p]} (-1 if invalid).
+         * Repeated denominations add up. Must be called once the mask is complete.
+         */
+        void inventory(Denominations denominations, byte[] bits, int coinCount, int[] counts, int countCount) {
+            if (countCount != coinCount) {
+                invalidInventory = "availableCounts must have one entry per coin denomination";
+                return;
+            }
+            long[] sums = new long[denominations.size()];
+            for (int p = 0; p < countCount; p++) {
+                if (counts[p] < 0) {
+                    invalidInventory = "Available counts cannot be negative";
+                    return;
+                }
+                if (bits[p] >= 0) {
+                    sums[bits[p]] += counts[p];
+                }
+            }
+            available = new int[Integer.bitCount(denominationMask)];
+            for (int bit = 0, j = 0; bit < sums.length; bit++) {
+                if ((denominationMask & 1 << bit) != 0) {
+                    available[j++] = (int) Math.min(Integer.MAX_VALUE, sums[bit]);
+                }
+            }
+        }
+
+        /**
+         * Resolves the amount and the coins against the currency of {@code engine}. Does nothing if the request
+         * was already decoded.
+         */
+        void decode(CoinChangeService engine) {
+            if (this.engine != null) {
+                return;
+            }
+            this.engine = engine;
+            Denominations denominations = engine.denominations();
+            byte[] bits;
+            int[] counts = null;
+            if (parsed) {
+                amountCents = amountInMinorUnits ? rawAmount : MinorUnits.rescale(
+                        rawAmount, RequestDeserializer.SCALE, denominations.scale(), RoundingMode.HALF_UP);
+                bits = new byte[coinCount];
+                for (int p = 0; p < coinCount; p++) {
+                    long coin = rawCoins[p];
+                    long cents = coin == MinorUnits.INVALID || coinsInMinorUnits ? coin : MinorUnits.rescale(
+                            coin, RequestDeserializer.SCALE, denominations.scale(), RoundingMode.UNNECESSARY);
+                    int bit = cents > 0 && cents <= Integer.MAX_VALUE ? denominations.bit((int) cents) : -1;
+                    bits[p] = (byte) bit;
+                    if (bit >= 0) {
+                        denominationMask |= 1 << bit;
+                    } else if (coin == MinorUnits.INVALID) {
+                        rejectDenomination(unparsedCoin);
+                    } else {
+                        rejectDenomination(coinsInMinorUnits ? coin + " minor units"
+                                : BigDecimal.valueOf(coin, RequestDeserializer.SCALE).stripTrailingZeros()
+                                        .toPlainString());
+                    }
+                }
+                counts = rawCounts;
+            } else {
+                if (targetAmount != null && amountMinor != null) {
+                    reject("targetAmount and amountMinor cannot both be set");
+                }
+                // The double's shortest decimal form, read exactly as if it had been sent as JSON
+                amountCents = amountMinor != null ? amountMinor : targetAmount == null ? 0 : MinorUnits.parse(
+                        Double.toString(targetAmount), denominations.scale(), RoundingMode.HALF_UP);
+                if (amountCents == MinorUnits.INVALID) {
+                    reject("Invalid target amount: " + targetAmount);
+                    amountCents = 0;
+                }
+                if (coinDenominations != null && denominationsMinor != null) {
+                    reject("coinDenominations and denominationsMinor cannot both be set");
+                }
+                boolean minor = coinDenominations == null && denominationsMinor != null;
+                coinCount = minor ? denominationsMinor.size()
+                        : coinDenominations == null ? 0 : coinDenominations.size();
+                bits = new byte[coinCount];
+                for (int p = 0; p < coinCount; p++) {
+                    Number coin = minor ? denominationsMinor.get(p) : coinDenominations.get(p);
+                    int bit = coin == null ? -1
+                            : minor ? denominations.bit(coin.intValue()) : denominations.bit(coin.doubleValue());
+                    bits[p] = (byte) bit;
+                    if (bit < 0) {
+                        rejectDenomination(minor && coin != null ? coin + " minor units" : String.valueOf(coin));
+                    } else {
+                        denominationMask |= 1 << bit;
+                    }
+                }
+                if (availableCounts != null) {
+                    counts = new int[availableCounts.size()];
+                    for (int p = 0; p < counts.length; p++) {
+                        Integer count = availableCounts.get(p);
+                        counts[p] = count == null ? -1 : count;
+                    }
+                    countCount = counts.length;
+                }
+            }
+            if (counts != null) {
+                inventory(denominations, bits, coinCount, counts, countCount);
+            }
+        }
+    }
+
+    /**
+     * One entry of a batch response: either a result (in the requested format) or an error,
+     * with the HTTP status the same request would have received on its own.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class BatchResult {
+        @JsonProperty
+        public int status;
+
+        @JsonProperty
+        public List<Double> coins;
+
+        @JsonProperty
+        public Map<Double, Integer> counts;
+
+        @JsonProperty
+        public String error;
+
+        static BatchResult error(Response.Status status, String error) {
+            return error(status.getStatusCode(), error);
+        }
+
+        static BatchResult error(int status, String error) {
+            BatchResult result = new BatchResult();
+            result.status = status;
+            result.error = error;
+            return result;
+        }
+    }
+
+    /** One page of {@link #getAlternatives}; {@code nextOffset} is omitted after the last combination. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class AlternativesPage {
+        @JsonProperty
+        public int offset;
+
+        @JsonProperty
+        public Integer nextOffset;
+
+        @JsonProperty
+        public List<Alternative> alternatives;
     }
 
+    /** One combination, in the requested format, with its total number of coins. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Alternative {
+        @JsonProperty
+        public int coinCount;
+
+        @JsonProperty
+        public List<Double> coins;
+
+        @JsonProperty
+        public Map<Double, Integer> counts;
+    }
+
+    /**
+     * Cheap requests (greedy, precomputed or cached answers, small DP) are answered on the request thread.
+     * Expensive DP requests are handed to the bounded compute pool so they cannot tie up every connector
+     * thread; when its queue is full they are rejected right away with 503 and a Retry-After header, and they
+     * are answered with the same 503 if they do not complete within the compute timeout.
+     */
     @POST
-    public Response getMinimumCoins(Request request) {
-        if (request == null) {
+    @Timed
+    public void getMinimumCoins(Request request, @QueryParam("format") String format,
+                                @Suspended AsyncResponse asyncResponse) {
+        Response invalid = checkRequest(request, format);
+        if (invalid != null) {
+            asyncResponse.resume(invalid);
+            return;
+        }
+
+        respond(asyncResponse, work(request), () -> compute(request, format));
+    }
+
+    /**
+     * Resumes {@code asyncResponse} with {@code compute}, on the calling thread if it needs at most
+     * {@code inlineWorkLimit} DP cells, otherwise through the compute pool (503 when it is full or too slow).
+     */
+    private void respond(AsyncResponse asyncResponse, long work, Supplier<Response> compute) {
+        if (computeExecutor == null || work <= inlineWorkLimit) {
+            asyncResponse.resume(compute.get());
+            return;
+        }
+        asyncResponse.setTimeoutHandler(timedOutResponse -> {
+            timedOut.mark();
+            timedOutResponse.resume(busy());
+        });
+        asyncResponse.setTimeout(computeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            computeExecutor.execute(() -> {
+                if (!asyncResponse.isSuspended()) {
+                    return; // timed out while queued
+                }
+                try {
+                    asyncResponse.resume(compute.get());
+                } catch (Throwable e) {
+                    // Errors too (OutOfMemoryError, StackOverflowError): the client must not wait forever
+                    LOGGER.error("Computation failed", e);
+                    asyncResponse.resume(Response.serverError()
+                            .entity(Map.of("error", "Computation failed")).build());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            asyncResponse.resume(busy());
+        }
+    }
+
+    private Response busy() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(Map.of("error", "Server is busy, retry later")).build();
+    }
+
+    /**
+     * Same as {@link #getMinimumCoins(Request, String, AsyncResponse)}, but always computes on the calling thread.
+     */
+    public Response minimumCoins(Request request, String format) {
+        Response invalid = checkRequest(request, format);
+        return invalid != null ? invalid : compute(request, format);
+    }
+
+    /**
+     * @return a 400 response for an invalid request, or null if the request is valid
+     */
+    private Response checkRequest(Request request, String format) {
+        long start = System.nanoTime();
+        String error = validate(request, format);
+        validationTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (error != null) {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(Map.of("error", "Request body is missing")).build();
+                    .entity(Map.of("error", error)).build();
         }
-        if (request.targetAmount < 0 || request.targetAmount > 10000) {
+        return null;
+    }
+
+    private Response compute(Request request, String format) {
+        long validated = System.nanoTime();
+        int[] counts;
+        try {
+            counts = counts(request);
+        } catch (AmountTooLargeException e) {
+            return Response.status(UNPROCESSABLE_ENTITY).entity(Map.of("error", e.getMessage())).build();
+        }
+        computationTimer.update(System.nanoTime() - validated, TimeUnit.NANOSECONDS);
+        if (counts == null || Arrays.stream(counts).allMatch(c -> c == 0)) {
+            return Response.status(Response.Status.NOT_FOUND)
+                    .entity(Map.of("error", "No solution found for the given input")).build();
+        }
+
+        if (FORMAT_COUNTS.equals(format)) {
+            return Response.ok(request.engine.toCountMap(counts, request.denominationMask)).build();
+        }
+        return Response.ok(request.engine.toCoinList(counts, request.denominationMask)).build();
+    }
+
+    /**
+     * Answers many requests in one round trip. Results are returned in request order; items that fail
+     * validation or have no solution are reported inline and do not fail the batch.
+     * Items sharing a denomination set are solved together, so they share one DP table or greedy ordering.
+     * Each such group (and each item with an inventory) is admitted like a single request: expensive ones run on
+     * the compute pool, and those it turns away or that miss the compute timeout are reported as 503 items.
+     */
+    @POST
+    @Path("/batch")
+    @Timed
+    public Response getMinimumCoinsBatch(List<Request> requests, @QueryParam("format") String format) {
+        if (requests == null || requests.isEmpty()) {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(Map.of("error", "Target amount must be between 0 and 10,000.00")).build();
+                    .entity(Map.of("error", "Batch must contain at least one request")).build();
         }
-        if (request.coinDenominations == null || request.coinDenominations.isEmpty()) {
+        if (requests.size() > MAX_BATCH_SIZE) {
             return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(Map.of("error", "Coin denominations list cannot be empty")).build();
+                    .entity(Map.of("error", "Batch cannot contain more than " + MAX_BATCH_SIZE + " requests")).build();
+        }
+        if (format != null && !FORMAT_EXPANDED.equals(format) && !FORMAT_COUNTS.equals(format)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "Unsupported format: " + format)).build();
+        }
+
+        long start = System.nanoTime();
+        BatchResult[] results = new BatchResult[requests.size()];
+        // Grouped by currency engine, then by denomination set
+        Map<CoinChangeService, Map<Integer, List<Integer>>> groups = new HashMap<>();
+        List<Integer> bounded = new ArrayList<>();
+        for (int i = 0; i < results.length; i++) {
+            Request request = requests.get(i);
+            String error = validate(request, format);
+            if (error != null) {
+                results[i] = BatchResult.error(Response.Status.BAD_REQUEST, error);
+            } else if (request.available != null) {
+                // Inventories differ per item, so limited-supply items are solved one by one
+                bounded.add(i);
+            } else {
+                groups.computeIfAbsent(request.engine, engine -> new HashMap<>())
+                        .computeIfAbsent(request.denominationMask, mask -> new ArrayList<>()).add(i);
+            }
+        }
+        long validated = System.nanoTime();
+        validationTimer.update(validated - start, TimeUnit.NANOSECONDS);
+
+        long deadline = validated + computeTimeout.toNanos();
+        List<List<Integer>> admitted = new ArrayList<>();
+        List<Future<BatchResult[]>> tasks = new ArrayList<>();
+        groups.forEach((engine, sets) -> sets.forEach((mask, members) -> {
+            long[] amounts = new long[members.size()];
+            long largest = 0;
+            for (int k = 0; k < amounts.length; k++) {
+                amounts[k] = requests.get(members.get(k)).amountCents;
+                largest = Math.max(largest, amounts[k]);
+            }
+            admitted.add(members);
+            // One table up to the largest amount answers the whole group
+            tasks.add(admit(engine.dpWork(largest, mask), () -> {
+                int[][] counts = engine.countCoinsBatch(amounts, mask);
+                BatchResult[] groupResults = new BatchResult[amounts.length];
+                for (int k = 0; k < amounts.length; k++) {
+                    groupResults[k] = toBatchResult(engine, counts[k], mask, format);
+                }
+                return groupResults;
+            }));
+        }));
+        for (int i : bounded) {
+            Request request = requests.get(i);
+            admitted.add(List.of(i));
+            tasks.add(admit(work(request), () -> new BatchResult[]{toBatchResult(request, format)}));
+        }
+        boolean busy = false;
+        for (int t = 0; t < tasks.size(); t++) {
+            List<Integer> members = admitted.get(t);
+            BatchResult[] taskResults = await(tasks.get(t), members.size(), deadline);
+            for (int k = 0; k < taskResults.length; k++) {
+                results[members.get(k)] = taskResults[k];
+                busy |= taskResults[k].status == Response.Status.SERVICE_UNAVAILABLE.getStatusCode();
+            }
+        }
+        computationTimer.update(System.nanoTime() - validated, TimeUnit.NANOSECONDS);
+        Response.ResponseBuilder response = Response.ok(Arrays.asList(results));
+        return busy ? response.header(HttpHeaders.RETRY_AFTER, retryAfterSeconds).build() : response.build();
+    }
+
+    /**
+     * @return DP cells a valid request still needs (see {@link CoinChangeService#dpWork}), which decides whether
+     *   it is computed on the request thread or on the compute pool
+     */
+    private static long work(Request request) {
+        return request.available == null
+                ? request.engine.dpWork(request.amountCents, request.denominationMask)
+                : request.engine.boundedDpWork(request.amountCents, request.denominationMask, request.available);
+    }
+
+    /**
+     * Admits a batch or stream computation as {@link #getMinimumCoins} admits a request: run right away if
+     * cheap, otherwise handed to the compute pool.
+     *
+     * @return the computation's future, already done if it ran inline; null if the pool turned it away
+     */
+    private Future<BatchResult[]> admit(long work, Callable<BatchResult[]> task) {
+        if (computeExecutor == null || work <= inlineWorkLimit) {
+            FutureTask<BatchResult[]> inline = new FutureTask<>(task);
+            inline.run();
+            return inline;
+        }
+        try {
+            return computeExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            return null;
         }
+    }
 
-        for (double coin : request.coinDenominations) {
-            if (!ALLOWED_COINS.contains(coin)) {
-                return Response.status(Response.Status.BAD_REQUEST)
-                        .entity(Map.of("error", "Invalid coin denomination: " + coin)).build();
+    /**
+     * @return the results of an {@link #admit admitted} computation of {@code items} items; 503 items if it was
+     *   turned away or is not done by {@code deadline} ({@link System#nanoTime}), 500 items if it failed
+     */
+    private BatchResult[] await(Future<BatchResult[]> task, int items, long deadline) {
+        BatchResult failure;
+        if (task == null) {
+            failure = busyResult();
+        } else {
+            try {
+                return task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                task.cancel(false);
+                timedOut.mark();
+                failure = busyResult();
+            } catch (ExecutionException e) {
+                LOGGER.error("Computation failed", e.getCause());
+                failure = BatchResult.error(Response.Status.INTERNAL_SERVER_ERROR, "Computation failed");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = busyResult();
             }
         }
+        BatchResult[] failed = new BatchResult[items];
+        Arrays.fill(failed, failure);
+        return failed;
+    }
+
+    private static BatchResult busyResult() {
+        return BatchResult.error(Response.Status.SERVICE_UNAVAILABLE, "Server is busy, retry later");
+    }
+
+    /**
+     * Alternative breakdowns of one request, a page at a time: optimal combinations first, then those using
+     * more coins (see {@link CoinChangeService#alternatives}). Only the combinations up to the end of the
+     * requested page are computed. Pages are admitted like {@link #getMinimumCoins} requests, by the DP rows
+     * and search steps they may need; pages the search gives up on are answered with 422.
+     */
+    @POST
+    @Path("/alternatives")
+    @Timed
+    public void getAlternatives(Request request, @QueryParam("format") String format,
+                                @QueryParam("offset") @DefaultValue("0") int offset,
+                                @QueryParam("limit") @DefaultValue("10") int limit,
+                                @Suspended AsyncResponse asyncResponse) {
+        Response invalid = checkRequest(request, format);
+        if (invalid == null) {
+            invalid = checkAlternatives(request, offset, limit);
+        }
+        if (invalid != null) {
+            asyncResponse.resume(invalid);
+            return;
+        }
+
+        long work = request.engine.alternativesWork(request.amountCents, request.denominationMask,
+                offset + limit + 1L);
+        respond(asyncResponse, work, () -> alternatives(request, format, offset, limit));
+    }
+
+    private Response checkAlternatives(Request request, int offset, int limit) {
+        CoinChangeService engine = request.engine;
+        if (request.amountCents > engine.maxAlternativesCents()) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("error",
+                    "Alternatives are limited to amounts up to " + format(engine,
+                            engine.maxAlternativesCents() / (double) engine.denominations().unit()))).build();
+        }
+        if (request.available != null) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", "availableCounts is not supported for alternatives")).build();
+        }
+        if (offset < 0 || offset > MAX_ALTERNATIVES_OFFSET || limit < 1 || limit > MAX_ALTERNATIVES_PAGE) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("error", "offset must be between 0 and "
+                    + MAX_ALTERNATIVES_OFFSET + " and limit between 1 and " + MAX_ALTERNATIVES_PAGE)).build();
+        }
+        return null;
+    }
 
-        List<Double> result = service.calculateMinCoins(request.targetAmount, request.coinDenominations);
-        if (result == null || result.isEmpty()) {
+    private Response alternatives(Request request, String format, int offset, int limit) {
+        CoinChangeService engine = request.engine;
+        long start = System.nanoTime();
+        int mask = request.denominationMask;
+        List<int[]> page;
+        try {
+            page = request.amountCents == 0 ? List.of()
+                    : engine.alternatives(request.amountCents, mask).skip(offset).limit(limit + 1L)
+                            .collect(Collectors.toList());
+        } catch (AmountTooLargeException e) {
+            return Response.status(UNPROCESSABLE_ENTITY).entity(Map.of("error", e.getMessage())).build();
+        } finally {
+            computationTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (page.isEmpty() && offset == 0) {
             return Response.status(Response.Status.NOT_FOUND)
                     .entity(Map.of("error", "No solution found for the given input")).build();
         }
 
+        AlternativesPage result = new AlternativesPage();
+        result.offset = offset;
+        result.nextOffset = page.size() > limit ? offset + limit : null;
+        result.alternatives = new ArrayList<>(Math.min(page.size(), limit));
+        for (int[] counts : page.subList(0, Math.min(page.size(), limit))) {
+            Alternative alternative = new Alternative();
+            alternative.coinCount = Arrays.stream(counts).sum();
+            if (FORMAT_COUNTS.equals(format)) {
+                alternative.counts = engine.toCountMap(counts, mask);
+            } else {
+                alternative.coins = engine.toCoinList(counts, mask);
+            }
+            result.alternatives.add(alternative);
+        }
         return Response.ok(result).build();
     }
-}
 
+    /**
+     * Bulk computation over newline-delimited JSON. Requests are parsed one at a time from the request body
+     * and each result line (same shape as a batch item) is written as soon as it is computed, so memory stays
+     * flat regardless of input size. Writes block while a slow client is not reading, which in turn pauses
+     * reading further input. Each line is admitted like a single request, so expensive lines wait for the
+     * compute pool, and lines it turns away or that miss the compute timeout get a 503 result line.
+     */
+    @POST
+    @Path("/stream")
+    @Timed
+    @Consumes(APPLICATION_NDJSON)
+    @Produces(APPLICATION_NDJSON)
+    public Response getMinimumCoinsStream(InputStream body, @QueryParam("format") String format) {
+        if (format != null && !FORMAT_EXPANDED.equals(format) && !FORMAT_COUNTS.equals(format)) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .entity(Map.of("error", "Unsupported format: " + format)).build();
+        }
+
+        StreamingOutput output = out -> streamResults(body, out, format);
+        return Response.ok(output).build();
+    }
 
+    private void streamResults(InputStream body, OutputStream out, String format) throws IOException {
+        try (JsonParser parser = requestReader.getFactory().createParser(body);
+             JsonGenerator generator = resultWriter.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null); // lines are terminated explicitly below
 
+            MappingIterator<Request> requests = requestReader.readValues(parser);
+            int unflushed = 0;
+            while (true) {
+                BatchResult result;
+                try {
+                    if (!requests.hasNextValue()) {
+                        break;
+                    }
+                    result = solve(requests.nextValue(), format);
+                } catch (JsonProcessingException e) {
+                    // The parser cannot resynchronise after malformed input; report it and end the stream
+                    resultWriter.writeValue(generator,
+                            BatchResult.error(Response.Status.BAD_REQUEST, "Malformed request: " + e.getOriginalMessage()));
+                    generator.writeRaw('\n');
+                    break;
+                }
+
+                resultWriter.writeValue(generator, result);
+                generator.writeRaw('\n');
+                if (++unflushed >= STREAM_FLUSH_INTERVAL || body.available() == 0) {
+                    generator.flush();
+                    unflushed = 0;
+                }
+            }
+            generator.flush();
+        }
+    }
+
+    private BatchResult solve(Request request, String format) {
+        String error = validate(request, format);
+        if (error != null) {
+            return BatchResult.error(Response.Status.BAD_REQUEST, error);
+        }
+        Future<BatchResult[]> task = admit(work(request), () -> new BatchResult[]{toBatchResult(request, format)});
+        return await(task, 1, System.nanoTime() + computeTimeout.toNanos())[0];
+    }
+
+    /**
+     * @return the result of a valid request; 422 if it is too large to compute
+     */
+    private static BatchResult toBatchResult(Request request, String format) {
+        int[] counts;
+        try {
+            counts = counts(request);
+        } catch (AmountTooLargeException e) {
+            return BatchResult.error(UNPROCESSABLE_ENTITY, e.getMessage());
+        }
+        return toBatchResult(request.engine, counts, request.denominationMask, format);
+    }
+
+    /**
+     * @return counts per denomination of a valid request's mask, ascending, or null if there is no solution
+     */
+    private static int[] counts(Request request) {
+        return request.available == null
+                ? request.engine.solveByMask(request.amountCents, request.denominationMask)
+                : request.engine.solveBounded(request.amountCents, request.denominationMask, request.available);
+    }
+
+    private static BatchResult toBatchResult(CoinChangeService engine, int[] counts, int denominationMask,
+                                             String format) {
+        if (counts == null || Arrays.stream(counts).allMatch(c -> c == 0)) {
+            return BatchResult.error(Response.Status.NOT_FOUND, "No solution found for the given input");
+        }
+
+        BatchResult result = new BatchResult();
+        result.status = Response.Status.OK.getStatusCode();
+        if (FORMAT_COUNTS.equals(format)) {
+            result.counts = engine.toCountMap(counts, denominationMask);
+        } else {
+            result.coins = engine.toCoinList(counts, denominationMask);
+        }
+        return result;
+    }
+
+    /**
+     * @return the error message for an invalid request, or null if the request is valid
+     */
+    private String validate(Request request, String format) {
+        if (request == null) {
+            return "Request body is missing";
+        }
+        CoinChangeService engine = request.currency == null ? service : currencies.get(request.currency);
+        if (engine == null) {
+            return "Unsupported currency: " + request.currency;
+        }
+        request.decode(engine);
+        if (request.invalidRequest != null) {
+            return request.invalidRequest;
+        }
+        if (request.amountCents < 0 || request.amountCents > request.engine.maxAmountCents()) {
+            return "Target amount must be between 0 and "
+                    + format(request.engine, request.engine.maxTargetAmount());
+        }
+        if (request.invalidDenomination != null) {
+            return "Invalid coin denomination: " + request.invalidDenomination;
+        }
+        if (request.denominationMask == 0) {
+            return "Coin denominations list cannot be empty";
+        }
+        if (request.invalidInventory != null) {
+            return request.invalidInventory;
+        }
+
+        if (format != null && !FORMAT_EXPANDED.equals(format) && !FORMAT_COUNTS.equals(format)) {
+            return "Unsupported format: " + format;
+        }
+        return null;
+    }
+
+    /**
+     * @return the amount with the currency's decimals and thousands separators, e.g. 10,000.00
+     */
+    private static String format(CoinChangeService engine, double amount) {
+        return String.format(Locale.US, "%,." + engine.denominations().scale() + "f", amount);
+    }
+}
@@ -0,0 +1,318 @@
+package org.example.coinchangeservice.resources;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.example.coinchangeservice.service.AmountTooLargeException;
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.Denominations;
+import org.example.coinchangeservice.service.Drawer;
+import org.example.coinchangeservice.service.DrawerRegistry;
+import org.example.coinchangeservice.service.MinorUnits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Cash drawers owned by the service. A drawer is stocked with {@code PUT}, topped up with {@code deposit}, and
+ * hands out change with {@code dispense}, which takes the coins out of its inventory atomically.
+ */
+@Path("/drawers")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class DrawerResource {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DrawerResource.class);
+
+    /** Drawer ids are also written to the journal, so they are kept to a plain token. */
+    private static final Pattern DRAWER_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final DrawerRegistry registry;
+    private final CoinChangeService service;
+
+    private final ThreadPoolExecutor computeExecutor;
+    private final long inlineWorkLimit;
+    private final int retryAfterSeconds;
+    private final Duration computeTimeout;
+    private final Meter rejected;
+    private final Meter timedOut;
+
+    public DrawerResource(DrawerRegistry registry, CoinChangeService service) {
+        this(registry, service, null, 0, 0, CoinChangeResource.DEFAULT_COMPUTE_TIMEOUT);
+    }
+
+    /**
+     * Dispensing is admitted like a {@link CoinChangeResource} request with an inventory; the parameters are the
+     * same as there.
+     *
+     * @param computeExecutor   bounded pool for expensive dispenses, or null to run them on the request thread
+     * @param inlineWorkLimit   dispenses needing at most this many DP cells run on the request thread
+     * @param retryAfterSeconds Retry-After sent when the pool's queue is full
+     * @param computeTimeout    how long a dispense may wait for the pool before it is answered with 503
+     */
+    public DrawerResource(DrawerRegistry registry, CoinChangeService service, ThreadPoolExecutor computeExecutor,
+                          long inlineWorkLimit, int retryAfterSeconds, Duration computeTimeout) {
+        this.registry = registry;
+        this.service = service;
+        this.computeExecutor = computeExecutor;
+        this.inlineWorkLimit = inlineWorkLimit;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.computeTimeout = computeTimeout;
+        this.rejected = service.metrics().registry().meter(name(DrawerResource.class, "compute", "rejected"));
+        this.timedOut = service.metrics().registry().meter(name(DrawerResource.class, "compute", "timedOut"));
+    }
+
+    /** Change to hand out; without coinDenominations every denomination in the drawer may be used. */
+    public static class DispenseRequest {
+        /** Read as the decimal the client wrote, so the amount in minor units is exact; absent means 0. */
+        @JsonProperty
+        public BigDecimal targetAmount;
+
+        @JsonProperty
+        public List<Double> coinDenominations;
+    }
+
+    public static class DrawerView {
+        @JsonProperty
+        public String id;
+
+        @JsonProperty
+        public long version;
+
+        /** Coins held per denomination, ascending; empty denominations are omitted. */
+        @JsonProperty
+        public Map<Double, Integer> inventory;
+
+        static DrawerView of(String id, Drawer.Inventory inventory, Denominations denominations) {
+            DrawerView view = new DrawerView();
+            view.id = id;
+            view.version = inventory.version();
+            view.inventory = new LinkedHashMap<>();
+            for (int bit = 0; bit < denominations.size(); bit++) {
+                if (inventory.count(bit) > 0) {
+                    view.inventory.put(denominations.value(bit), inventory.count(bit));
+                }
+            }
+            return view;
+        }
+    }
+
+    public static class DispenseResult {
+        /** Coins handed out per denomination, ascending. */
+        @JsonProperty
+        public Map<Double, Integer> dispensed;
+
+        @JsonProperty
+        public DrawerView drawer;
+    }
+
+    @GET
+    @Path("/{id}")
+    @Timed
+    public Response getDrawer(@PathParam("id") String id) {
+        Drawer drawer = registry.drawer(id);
+        if (drawer == null) {
+            return unknownDrawer(id);
+        }
+        return Response.ok(DrawerView.of(id, drawer.inventory(), service.denominations())).build();
+    }
+
+    /** Sets the drawer's whole inventory, creating the drawer if needed. */
+    @PUT
+    @Path("/{id}")
+    @Timed
+    public Response stockDrawer(@PathParam("id") String id, Map<Double, Integer> inventory) {
+        if (!DRAWER_ID.matcher(id).matches()) {
+            return badRequest("Drawer id must be 1 to 64 letters, digits, '-' or '_'");
+        }
+        int[] coins = new int[service.denominations().size()];
+        String error = toCoins(inventory, coins);
+        if (error != null) {
+            return badRequest(error);
+        }
+        return Response.ok(DrawerView.of(id, registry.getOrCreate(id).replace(coins), service.denominations())).build();
+    }
+
+    @POST
+    @Path("/{id}/deposit")
+    @Timed
+    public Response deposit(@PathParam("id") String id, Map<Double, Integer> coins) {
+        Drawer drawer = registry.drawer(id);
+        if (drawer == null) {
+            return unknownDrawer(id);
+        }
+        int[] deposited = new int[service.denominations().size()];
+        String error = toCoins(coins, deposited);
+        if (error != null) {
+            return badRequest(error);
+        }
+        try {
+            return Response.ok(DrawerView.of(id, drawer.deposit(deposited), service.denominations())).build();
+        } catch (ArithmeticException e) {
+            return badRequest("Drawer cannot hold that many coins");
+        }
+    }
+
+    /**
+     * Cheap dispenses run on the request thread; those needing a large bounded DP are handed to the compute pool,
+     * and answered with 503 and Retry-After when its queue is full or they are still queued at the compute
+     * timeout. A dispense that has started is always answered with its outcome, since it takes coins out of the
+     * drawer.
+     */
+    @POST
+    @Path("/{id}/dispense")
+    @Timed
+    public void dispense(@PathParam("id") String id, DispenseRequest request,
+                         @Suspended AsyncResponse asyncResponse) {
+        Drawer drawer = registry.drawer(id);
+        if (drawer == null) {
+            asyncResponse.resume(unknownDrawer(id));
+            return;
+        }
+        if (request == null) {
+            asyncResponse.resume(badRequest("Request body is missing"));
+            return;
+        }
+        Denominations denominations = service.denominations();
+        long amountCents = request.targetAmount == null ? 0 : MinorUnits.parse(
+                request.targetAmount.toString(), denominations.scale(), RoundingMode.HALF_UP);
+        if (amountCents < 0 || amountCents > service.maxAmountCents()) {
+            asyncResponse.resume(badRequest(String.format(Locale.US, "Target amount must be between 0 and %,.2f",
+                    service.maxTargetAmount())));
+            return;
+        }
+        int allowed = denominations.all();
+        if (request.coinDenominations != null) {
+            allowed = 0;
+            for (Double coin : request.coinDenominations) {
+                int bit = coin == null ? -1 : denominations.bit(coin);
+                if (bit < 0) {
+                    asyncResponse.resume(badRequest("Invalid coin denomination: " + coin));
+                    return;
+                }
+                allowed |= 1 << bit;
+            }
+        }
+
+        int allowedMask = allowed;
+        if (computeExecutor == null || drawer.dispenseWork(amountCents, allowedMask) <= inlineWorkLimit) {
+            asyncResponse.resume(dispense(id, drawer, amountCents, allowedMask));
+            return;
+        }
+        // Claimed by whichever comes first: the worker starting the dispense, or the timeout while still queued
+        AtomicBoolean claimed = new AtomicBoolean();
+        asyncResponse.setTimeoutHandler(timedOutResponse -> {
+            if (claimed.compareAndSet(false, true)) {
+                timedOut.mark();
+                timedOutResponse.resume(busy());
+            } else {
+                timedOutResponse.setTimeout(computeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        });
+        asyncResponse.setTimeout(computeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        try {
+            computeExecutor.execute(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return; // timed out while queued
+                }
+                try {
+                    asyncResponse.resume(dispense(id, drawer, amountCents, allowedMask));
+                } catch (Throwable e) {
+                    LOGGER.error("Dispense failed", e);
+                    asyncResponse.resume(Response.serverError()
+                            .entity(Map.of("error", "Dispense failed")).build());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.mark();
+            asyncResponse.resume(busy());
+        }
+    }
+
+    private Response dispense(String id, Drawer drawer, long amountCents, int allowedMask) {
+        Drawer.Dispensed dispensed;
+        try {
+            dispensed = drawer.dispense(amountCents, allowedMask);
+        } catch (AmountTooLargeException e) {
+            return Response.status(CoinChangeResource.UNPROCESSABLE_ENTITY)
+                    .entity(Map.of("error", e.getMessage())).build();
+        }
+        if (dispensed == null) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity(Map.of("error", "Drawer cannot make change for the given amount")).build();
+        }
+        Denominations denominations = service.denominations();
+        DispenseResult result = new DispenseResult();
+        result.dispensed = new LinkedHashMap<>();
+        for (int bit = 0; bit < denominations.size(); bit++) {
+            if (dispensed.count(bit) > 0) {
+                result.dispensed.put(denominations.value(bit), dispensed.count(bit));
+            }
+        }
+        result.drawer = DrawerView.of(id, dispensed.remaining(), denominations);
+        return Response.ok(result).build();
+    }
+
+    private Response busy() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .entity(Map.of("error", "Server is busy, retry later")).build();
+    }
+
+    /**
+     * Converts {denomination: count} pairs to counts per {@link Denominations} bit.
+     *
+     * @return the error message for invalid pairs, or null if they are valid
+     */
+    private String toCoins(Map<Double, Integer> pairs, int[] coins) {
+        if (pairs == null) {
+            return "Request body is missing";
+        }
+        for (Map.Entry<Double, Integer> pair : pairs.entrySet()) {
+            int bit = pair.getKey() == null ? -1 : service.denominations().bit(pair.getKey());
+            if (bit < 0) {
+                return "Invalid coin denomination: " + pair.getKey();
+            }
+            if (pair.getValue() == null || pair.getValue() < 0) {
+                return "Coin counts cannot be negative";
+            }
+            coins[bit] = pair.getValue();
+        }
+        return null;
+    }
+
+    private static Response unknownDrawer(String id) {
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity(Map.of("error", "Unknown drawer: " + id)).build();
+    }
+
+    private static Response badRequest(String error) {
+        return Response.status(Response.Status.BAD_REQUEST).entity(Map.of("error", error)).build();
+    }
+}
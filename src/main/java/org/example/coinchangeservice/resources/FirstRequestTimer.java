@@ -0,0 +1,36 @@
+package org.example.coinchangeservice.resources;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.ext.Provider;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Startup metric: milliseconds from JVM start until the first response of the API is ready, exposed as the
+ * gauge {@code CoinChangeResource.startup.timeToFirstRequest} (-1 until the first request). After the first
+ * request the filter costs one volatile read per response.
+ */
+@Provider
+public class FirstRequestTimer implements ContainerResponseFilter {
+
+    private final AtomicLong timeToFirstRequest = new AtomicLong(-1);
+
+    public FirstRequestTimer(MetricRegistry metrics) {
+        metrics.register(name(CoinChangeResource.class, "startup", "timeToFirstRequest"),
+                (Gauge<Long>) timeToFirstRequest::get);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        if (timeToFirstRequest.get() < 0) {
+            timeToFirstRequest.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package org.example.coinchangeservice.resources;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.example.coinchangeservice.service.Denominations;
+import org.example.coinchangeservice.service.MinorUnits;
+
+import java.io.IOException;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Reads a {@link CoinChangeResource.Request} straight into its raw internal form: the amount and every coin as a
+ * {@code long}, the inventory ({@code availableCounts}) as an {@code int[]}. Coins are never boxed or collected
+ * into a list. The currency, and so the scale and the accepted denominations, may only be known at the end of
+ * the object, so amounts are resolved to the currency's minor units and coins to a {@link Denominations} mask
+ * afterwards, by {@link CoinChangeResource.Request#decode}.
+ * <p>
+ * Decimal amounts and coins (JSON numbers or strings) are parsed from the token's characters by
+ * {@link MinorUnits}, never through a {@code double}, at {@link #SCALE}: one digit finer than any currency, so
+ * amounts can still be rounded half up to the cent. {@code amountMinor} and {@code denominationsMinor} are
+ * integers in the currency's minor units.
+ */
+class RequestDeserializer extends StdDeserializer<CoinChangeResource.Request> {
+
+    /** Decimal places kept for decimal amounts and coins until the currency is known. */
+    static final int SCALE = Denominations.MAX_SCALE + 1;
+
+    private static final long[] NO_VALUES = new long[0];
+    private static final int[] NO_COUNTS = new int[0];
+
+    RequestDeserializer() {
+        super(CoinChangeResource.Request.class);
+    }
+
+    @Override
+    public CoinChangeResource.Request deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartObjectToken()) {
+            return (CoinChangeResource.Request) ctxt.handleUnexpectedToken(CoinChangeResource.Request.class, p);
+        }
+
+        CoinChangeResource.Request request = new CoinChangeResource.Request();
+        request.parsed = true;
+        boolean amount = false;
+        boolean amountMinor = false;
+        Positions coins = null;
+        Positions coinsMinor = null;
+        Positions counts = null;
+        for (String field = p.nextFieldName(); field != null; field = p.nextFieldName()) {
+            p.nextToken();
+            switch (field) {
+                case "targetAmount":
+                    // null stands for "not set", as for amountMinor
+                    if (p.currentToken() != JsonToken.VALUE_NULL) {
+                        amount = true;
+                        request.rawAmount = readAmount(p, ctxt, request);
+                        request.amountInMinorUnits = false;
+                    }
+                    break;
+                case "amountMinor":
+                    if (p.currentToken() != JsonToken.VALUE_NULL) {
+                        amountMinor = true;
+                        request.rawAmount = _parseLongPrimitive(p, ctxt);
+                        request.amountInMinorUnits = true;
+                    }
+                    break;
+                case "coinDenominations":
+                    coins = readDenominations(p, ctxt, request, false);
+                    break;
+                case "denominationsMinor":
+                    coinsMinor = readDenominations(p, ctxt, request, true);
+                    break;
+                case "availableCounts":
+                    counts = readCounts(p, ctxt);
+                    break;
+                case "currency":
+                    request.currency = p.currentToken() == JsonToken.VALUE_NULL ? null : _parseString(p, ctxt);
+                    break;
+                default:
+                    // Unknown properties are ignored, as with the default bean deserializer
+                    p.skipChildren();
+            }
+        }
+        if (amount && amountMinor) {
+            request.reject("targetAmount and amountMinor cannot both be set");
+        }
+        if (coins != null && coinsMinor != null) {
+            request.reject("coinDenominations and denominationsMinor cannot both be set");
+        }
+        if (coins == null) {
+            coins = coinsMinor;
+        }
+        request.coinsInMinorUnits = coins != null && coins == coinsMinor;
+        request.rawCoins = coins == null ? NO_VALUES : coins.values;
+        request.coinCount = coins == null ? 0 : coins.size;
+        if (counts != null) {
+            request.rawCounts = counts.counts;
+            request.countCount = counts.size;
+        }
+        return request;
+    }
+
+    /**
+     * @return the amount at {@link #SCALE}, digits beyond it dropped
+     */
+    private long readAmount(JsonParser p, DeserializationContext ctxt, CoinChangeResource.Request request)
+            throws IOException {
+        JsonToken token = p.currentToken();
+        if (!token.isNumeric() && token != JsonToken.VALUE_STRING) {
+            ctxt.handleUnexpectedToken(double.class, p);
+            return 0;
+        }
+        long amount = MinorUnits.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength(),
+                SCALE, RoundingMode.DOWN);
+        if (amount == MinorUnits.INVALID) {
+            request.reject("Invalid target amount: " + p.getText());
+            return 0;
+        }
+        return amount;
+    }
+
+    /**
+     * @param minor whether coins are given in minor units ({@code denominationsMinor}) rather than as decimals
+     * @return every listed coin in request order ({@link MinorUnits#INVALID} for coins that are invalid in any
+     *   currency), or null if the list is null
+     */
+    private Positions readDenominations(JsonParser p, DeserializationContext ctxt,
+                                        CoinChangeResource.Request request, boolean minor) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!p.isExpectedStartArrayToken()) {
+            ctxt.handleUnexpectedToken(minor ? int[].class : double[].class, p);
+            return null;
+        }
+
+        request.unparsedCoin = null;
+        Positions positions = new Positions();
+        for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            long coin;
+            if (token == JsonToken.VALUE_NULL) {
+                coin = MinorUnits.INVALID;
+            } else if (minor) {
+                coin = _parseLongPrimitive(p, ctxt);
+            } else if (token.isNumeric() || token == JsonToken.VALUE_STRING) {
+                coin = MinorUnits.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength(),
+                        SCALE, RoundingMode.UNNECESSARY);
+            } else {
+                ctxt.handleUnexpectedToken(double.class, p);
+                coin = MinorUnits.INVALID;
+            }
+            if (coin == MinorUnits.INVALID && request.unparsedCoin == null) {
+                // Only the first one can be reported; the text is gone once the currency is known
+                request.unparsedCoin = token == JsonToken.VALUE_NULL ? "null" : p.getText();
+            }
+            positions.add(coin);
+        }
+        return positions;
+    }
+
+    /**
+     * @return the available counts in request order (-1 for null entries), or null if the list is null
+     */
+    private Positions readCounts(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!p.isExpectedStartArrayToken()) {
+            ctxt.handleUnexpectedToken(int[].class, p);
+            return null;
+        }
+
+        Positions positions = new Positions();
+        for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            positions.addCount(token == JsonToken.VALUE_NULL ? -1 : _parseIntPrimitive(p, ctxt));
+        }
+        return positions;
+    }
+
+    /** Growable per-position values of one array field, kept unboxed. */
+    private static final class Positions {
+        long[] values = NO_VALUES;
+        int[] counts = NO_COUNTS;
+        int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(8, size * 2));
+            }
+            values[size++] = value;
+        }
+
+        void addCount(int count) {
+            if (size == counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(8, size * 2));
+            }
+            counts[size++] = count;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.coinchangeservice.resources;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+import java.io.IOException;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Times how long response entities take to serialize, separately from validation and computation
+ * (which {@link CoinChangeResource} times itself). For streamed responses this covers the whole stream.
+ */
+@Provider
+public class SerializationTimer implements WriterInterceptor {
+
+    private final Timer timer;
+
+    public SerializationTimer(MetricRegistry metrics) {
+        this.timer = metrics.timer(name(CoinChangeResource.class, "serialization"));
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        try (Timer.Context ignored = timer.time()) {
+            context.proceed();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.coinchangeservice.service;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Every combination of coins forming an amount, produced lazily in order of coin count: the optimal ones
+ * first, then those using one coin more, and so on.
+ *
+ * A combination is built one coin at a time, largest denominations first and never going back to a larger one,
+ * so each multiset of coins has exactly one build path. Partial combinations are explored best-first (A*) by
+ * coins so far plus the fewest coins still needed with the denominations left, read from prefix DP rows
+ * ({@code fewest[j][a]}: fewest coins forming a using only the j + 1 smallest denominations). These are the DP
+ * tables of the prefix sets, so the service takes them from its DP table cache: the last one is the table
+ * {@code /coin-change} uses for the whole set. That estimate is exact, so no dead end is ever explored: the
+ * first combination costs one walk down its coins, and every further one only the part of its build path not
+ * shared with earlier ones. Partial combinations are kept as parent-linked nodes, so shared prefixes are stored
+ * once.
+ * <p>
+ * Combinations far down the order can still take long to reach (coins 0.01 and 0.05 give 1000.00 a path of up to
+ * 100,000 coins per combination), so the search stops with {@link AmountTooLargeException} after
+ * {@code maxExpansions} expanded nodes, or once more than {@code maxOpen} partial combinations are pending.
+ */
+final class Alternatives implements Iterator<int[]> {
+
+    private static final int UNREACHABLE = ParallelDp.UNREACHABLE;
+
+    private final int[] coins;
+    private final int[][] fewest;
+    private final long maxExpansions;
+    private final int maxOpen;
+    private final PriorityQueue<Node> open = new PriorityQueue<>();
+    private long created;
+    private long expanded;
+    private int[] next;
+
+    /**
+     * @param coins  distinct denominations in cents, ascending
+     * @param fewest prefix DP rows, one per denomination, each covering at least {@code amount}; only read
+     */
+    Alternatives(int amount, int[] coins, int[][] fewest, long maxExpansions, int maxOpen) {
+        this.coins = coins;
+        this.fewest = fewest;
+        this.maxExpansions = maxExpansions;
+        this.maxOpen = maxOpen;
+
+        int top = coins.length - 1;
+        if (fewest[top][amount] != UNREACHABLE) {
+            open.add(new Node(amount, top, 0, fewest[top][amount], null, -1, created++));
+        }
+    }
+
+    /**
+     * Fills the prefix DP rows, for callers without a DP table cache: O(n × A) time and memory.
+     */
+    static int[][] prefixRows(int amount, int[] coins) {
+        int[][] fewest = new int[coins.length][amount + 1];
+        for (int j = 0; j < coins.length; j++) {
+            int[] row = fewest[j];
+            int[] smaller = j > 0 ? fewest[j - 1] : null;
+            int c = coins[j];
+            for (int a = 0; a <= amount; a++) {
+                int best = a == 0 ? 0 : smaller != null ? smaller[a] : UNREACHABLE;
+                if (a >= c && row[a - c] != UNREACHABLE && row[a - c] + 1 < best) {
+                    best = row[a - c] + 1;
+                }
+                row[a] = best;
+            }
+        }
+        return fewest;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = search();
+        }
+        return next != null;
+    }
+
+    /**
+     * @return coins used per denomination, ascending
+     */
+    @Override
+    public int[] next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int[] result = next;
+        next = null;
+        return result;
+    }
+
+    private int[] search() {
+        for (Node node = open.poll(); node != null; node = open.poll()) {
+            if (node.remaining == 0) {
+                int[] counts = new int[coins.length];
+                for (Node n = node; n.coin >= 0; n = n.parent) {
+                    counts[n.coin]++;
+                }
+                return counts;
+            }
+            if (++expanded > maxExpansions || open.size() + node.maxCoin >= maxOpen) {
+                throw new AmountTooLargeException("Alternatives this far down need more than " + maxExpansions
+                        + " search steps or " + maxOpen + " partial combinations; ask for an earlier page");
+            }
+            for (int j = node.maxCoin; j >= 0; j--) {
+                int rest = node.remaining - coins[j];
+                if (rest >= 0 && fewest[j][rest] != UNREACHABLE) {
+                    int used = node.used + 1;
+                    open.add(new Node(rest, j, used, used + fewest[j][rest], node, j, created++));
+                }
+            }
+        }
+        return null;
+    }
+
+    /** A partial combination: {@code used} coins taken, {@code remaining} cents still to form. */
+    private static final class Node implements Comparable<Node> {
+        final int remaining;
+        final int maxCoin;      // largest denomination index still allowed
+        final int used;
+        final int estimate;     // used + fewest coins for the remainder: the final count of its best completion
+        final Node parent;
+        final int coin;         // denomination index taken last, -1 for the root
+        final long order;       // creation order, so equal nodes always come out in the same sequence
+
+        Node(int remaining, int maxCoin, int used, int estimate, Node parent, int coin, long order) {
+            this.remaining = remaining;
+            this.maxCoin = maxCoin;
+            this.used = used;
+            this.estimate = estimate;
+            this.parent = parent;
+            this.coin = coin;
+            this.order = order;
+        }
+
+        /** Lowest estimate first; among equal estimates the nearest to completion, so results come out early. */
+        @Override
+        public int compareTo(Node other) {
+            if (estimate != other.estimate) {
+                return Integer.compare(estimate, other.estimate);
+            }
+            if (remaining != other.remaining) {
+                return Integer.compare(remaining, other.remaining);
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+}
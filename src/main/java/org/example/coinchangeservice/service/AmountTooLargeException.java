@@ -0,0 +1,12 @@
+package org.example.coinchangeservice.service;
+
+/**
+ * A valid request the service refuses to compute because it would need more memory or work than allowed
+ * (see {@link CoinChangeService#MAX_BOUNDED_DP_AMOUNT} and {@link CoinChangeService#MAX_ALTERNATIVES_EXPANSIONS}).
+ */
+public class AmountTooLargeException extends RuntimeException {
+
+    public AmountTooLargeException(String message) {
+        super(message);
+    }
+}
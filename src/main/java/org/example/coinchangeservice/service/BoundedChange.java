@@ -0,0 +1,110 @@
+package org.example.coinchangeservice.service;
+
+/**
+ * Minimum-coin change with a limited number of coins per denomination (bounded knapsack).
+ *
+ * Each denomination c with k coins is one DP stage. Splitting the amounts by residue modulo c, the stage is
+ * new[r + t·c] = min over s in [t - k, t] of (old[r + s·c] - s) + t, a sliding-window minimum kept in a monotone
+ * deque. A stage therefore costs O(A) no matter how many coins are available, instead of O(A × k) for naive
+ * expansion.
+ *
+ * Only two rows are kept. To rebuild the solution, the rows before each stage are recomputed while walking the
+ * stages backwards, so memory is O(A) and time O(n² × A) for n denominations, independent of the inventory.
+ */
+final class BoundedChange {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private BoundedChange() {
+    }
+
+    /**
+     * @param coins     distinct denominations in cents, ascending
+     * @param available coins available per denomination, aligned with {@code coins}
+     * @return coins used per denomination, aligned with {@code coins}, or null if the amount cannot be formed
+     *   from the inventory
+     */
+    static int[] solve(int amount, int[] coins, int[] available) {
+        long inventory = 0;
+        for (int j = 0; j < coins.length; j++) {
+            inventory += (long) coins[j] * available[j];
+        }
+        if (amount > inventory) {
+            return null;
+        }
+
+        int[] row = new int[amount + 1];
+        int[] next = new int[amount + 1];
+        int[] deque = new int[amount / coins[0] + 2];
+
+        int best = rowAfter(coins.length, amount, coins, available, row, next, deque)[amount];
+        if (best == UNREACHABLE) {
+            return null;
+        }
+
+        int[] counts = new int[coins.length];
+        int remaining = amount;
+        for (int j = coins.length - 1; j >= 0 && remaining > 0; j--) {
+            int[] before = rowAfter(j, remaining, coins, available, row, next, deque);
+            // Any count consistent with the optimum will do; prefer as many of the larger coin as possible
+            for (int u = Math.min(available[j], remaining / coins[j]); u >= 0; u--) {
+                int prev = before[remaining - u * coins[j]];
+                if (prev != UNREACHABLE && prev + u == best) {
+                    counts[j] = u;
+                    remaining -= u * coins[j];
+                    best -= u;
+                    break;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return the DP row (minimum coins per amount up to {@code amount}) using only the first {@code stages}
+     *   denominations; one of the two row buffers
+     */
+    private static int[] rowAfter(int stages, int amount, int[] coins, int[] available,
+                                  int[] row, int[] next, int[] deque) {
+        row[0] = 0;
+        for (int a = 1; a <= amount; a++) row[a] = UNREACHABLE;
+
+        for (int j = 0; j < stages; j++) {
+            if (available[j] == 0) {
+                continue;
+            }
+            stage(coins[j], available[j], amount, row, next, deque);
+            int[] swap = row;
+            row = next;
+            next = swap;
+        }
+        return row;
+    }
+
+    /** One bounded stage: {@code next} = {@code row} plus up to {@code k} coins of value {@code c}. */
+    private static void stage(int c, int k, int amount, int[] row, int[] next, int[] deque) {
+        for (int r = 0; r < c && r <= amount; r++) {
+            int head = 0;
+            int tail = 0;   // deque[head..tail) holds positions s with increasing row[r + s·c] - s
+            for (int t = 0, a = r; a <= amount; t++, a += c) {
+                int value = row[a];
+                if (value != UNREACHABLE) {
+                    int key = value - t;
+                    while (tail > head && row[r + deque[tail - 1] * c] - deque[tail - 1] >= key) {
+                        tail--;
+                    }
+                    deque[tail++] = t;
+                }
+                while (tail > head && deque[head] < t - k) {
+                    head++;
+                }
+                if (tail > head) {
+                    int s = deque[head];
+                    next[a] = row[r + s * c] - s + t;
+                } else {
+                    next[a] = UNREACHABLE;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.coinchangeservice.service;
+
+/**
+ * Decides whether a coin system is canonical, i.e. whether the greedy algorithm returns an optimal
+ * (minimum coin count) answer for every amount.
+ *
+ * Uses the Kozen–Zaks bound: if a system with smallest coin 1 is not canonical, its smallest counterexample
+ * lies below c(n-1) + c(n), the sum of the two largest coins. Systems are first reduced by the gcd of their coins;
+ * if the smallest reduced coin is still not 1, greedy can miss solutions that exist (e.g. 6 with {2, 5}),
+ * so such systems are reported as non-canonical.
+ *
+ * Time complexity: O((c(n-1) + c(n)) × n), where c are the reduced coins. Callers should memoize the verdict.
+ */
+public final class CanonicalCoinSystem {
+
+    private CanonicalCoinSystem() {
+    }
+
+    /**
+     * @param sortedCoins distinct denominations sorted ascending
+     * @return true if greedy is optimal for every amount
+     */
+    public static boolean isCanonical(int[] sortedCoins) {
+        int n = sortedCoins.length;
+        if (n == 0) {
+            return false;
+        }
+
+        int g = 0;
+        for (int c : sortedCoins) g = gcd(g, c);
+        int[] coins = new int[n];
+        for (int i = 0; i < n; i++) coins[i] = sortedCoins[i] / g;
+
+        if (coins[0] != 1) {
+            return false;
+        }
+        if (n <= 2) {
+            return true;
+        }
+
+        int bound = coins[n - 2] + coins[n - 1];
+        int[] dp = new int[bound];   // dp[x]: optimal coin count for x (always reachable, since coin 1 exists)
+        for (int x = 1; x < bound; x++) {
+            int best = Integer.MAX_VALUE;
+            for (int j = 0; j < n && coins[j] <= x; j++) {
+                best = Math.min(best, dp[x - coins[j]] + 1);
+            }
+            dp[x] = best;
+            if (greedyCount(x, coins) != best) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int greedyCount(int amount, int[] coins) {
+        int count = 0;
+        for (int j = coins.length - 1; j >= 0 && amount > 0; j--) {
+            count += amount / coins[j];
+            amount %= coins[j];
+        }
+        return count;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.coinchangeservice.service;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Hot-path metrics for the coin change service, exposed through the application's {@link MetricRegistry}
+ * (and therefore the admin servlet).
+ *
+ * Algorithm timers are tagged by algorithm, amount bucket and denomination set size through their names,
+ * e.g. {@code org.example.coinchangeservice.service.CoinChangeService.solve.dp-cached.amount-le-1000.coins-3}.
+ * They are created on first use and then looked up by array index, so recording never builds a metric name.
+ */
+public class CoinChangeMetrics {
+
+    public static final int GREEDY = 0;
+    public static final int DP = 1;
+    public static final int DP_CACHED = 2;
+    public static final int PRECOMPUTED = 3;
+    public static final int BOUNDED = 4;
+
+    private static final String[] ALGORITHMS = {"greedy", "dp", "dp-cached", "precomputed", "bounded"};
+
+    /**
+     * Upper bounds (inclusive, in major units) of the amount buckets; larger amounts fall into the last bucket.
+     * Amounts arrive in minor units and are compared against these scaled by the currency's unit.
+     */
+    private static final long[] AMOUNT_BUCKET_BOUNDS = {1, 100, 1000, 10000};
+    private static final String[] AMOUNT_BUCKETS =
+            {"amount-le-1", "amount-le-100", "amount-le-1000", "amount-le-10000", "amount-gt-10000"};
+
+    /** Denomination set sizes above this share the last timer. */
+    private static final int MAX_TAGGED_COINS = 12;
+
+    private final MetricRegistry registry;
+    private final AtomicReferenceArray<Timer> solveTimers =
+            new AtomicReferenceArray<>(ALGORITHMS.length * AMOUNT_BUCKETS.length * (MAX_TAGGED_COINS + 1));
+
+    private final Counter noSolution;
+    private final Counter emptyResult;
+    private final Histogram resultCoins;
+    private final Meter coalesced;
+    private final Meter resultCacheHits;
+
+    public CoinChangeMetrics(MetricRegistry registry) {
+        this.registry = registry;
+        this.noSolution = registry.counter(name(CoinChangeService.class, "noSolution"));
+        this.emptyResult = registry.counter(name(CoinChangeService.class, "emptyResult"));
+        this.resultCoins = registry.histogram(name(CoinChangeService.class, "resultCoins"));
+        this.coalesced = registry.meter(name(CoinChangeService.class, "coalesced"));
+        this.resultCacheHits = registry.meter(name(CoinChangeService.class, "resultCache", "hits"));
+    }
+
+    public MetricRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Records one algorithm run.
+     *
+     * @param algorithm   {@link #GREEDY}, {@link #DP}, {@link #DP_CACHED}, {@link #PRECOMPUTED} or {@link #BOUNDED}
+     * @param amountCents target amount in minor units
+     * @param unit        minor units per major unit of the amount's currency
+     * @param coinTypes   size of the denomination set
+     * @param nanos       elapsed time
+     * @param counts      result counts, or null if there was no solution
+     */
+    public void recordSolve(int algorithm, long amountCents, long unit, int coinTypes, long nanos, int[] counts) {
+        solveTimer(algorithm, amountBucket(amountCents, unit), Math.min(coinTypes, MAX_TAGGED_COINS))
+                .update(nanos, TimeUnit.NANOSECONDS);
+
+        if (counts == null) {
+            noSolution.inc();
+            return;
+        }
+        long total = 0;
+        for (int c : counts) total += c;
+        if (total == 0) {
+            emptyResult.inc();
+        }
+        resultCoins.update(total);
+    }
+
+    /** A request that waited for an identical in-flight computation instead of running its own. */
+    public void coalesced() {
+        coalesced.mark();
+    }
+
+    /** A request answered from the {@link ResultCache}. */
+    public void resultCacheHit() {
+        resultCacheHits.mark();
+    }
+
+    private Timer solveTimer(int algorithm, int bucket, int coinTypes) {
+        int index = (algorithm * AMOUNT_BUCKETS.length + bucket) * (MAX_TAGGED_COINS + 1) + coinTypes;
+        Timer timer = solveTimers.get(index);
+        if (timer == null) {
+            // registry.timer() returns the already registered timer if another thread got here first
+            timer = registry.timer(name(CoinChangeService.class, "solve",
+                    ALGORITHMS[algorithm], AMOUNT_BUCKETS[bucket], "coins-" + coinTypes));
+            solveTimers.set(index, timer);
+        }
+        return timer;
+    }
+
+    private static int amountBucket(long amountCents, long unit) {
+        for (int i = 0; i < AMOUNT_BUCKET_BOUNDS.length; i++) {
+            if (amountCents <= AMOUNT_BUCKET_BOUNDS[i] * unit) {
+                return i;
+            }
+        }
+        return AMOUNT_BUCKET_BOUNDS.length;
+    }
+}
@@ -1,117 +1,1053 @@
 package org.example.coinchangeservice.service;
 
+import com.codahale.metrics.MetricRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class CoinChangeService {
 
-    private static final Set<Integer> VALID_DENOMINATIONS = new HashSet<>(
-            Arrays.asList(1, 5, 10, 20, 50, 100, 200, 500, 1000, 5000, 10000, 100000));
+    /** Default upper bound for target amounts. */
+    public static final double DEFAULT_MAX_TARGET_AMOUNT = 10000;
+
+    /**
+     * Largest target amount that can be configured. DP memory no longer grows with the amount (see
+     * {@link CoinSystem#reduce}), so the bound only keeps amounts and coin counts within {@code int} cents.
+     */
+    public static final long MAX_SUPPORTED_TARGET_AMOUNT = 20_000_000;
+
+    /** The same bound in minor units, for currencies with more or fewer than two decimals. */
+    public static final long MAX_SUPPORTED_AMOUNT_CENTS = MAX_SUPPORTED_TARGET_AMOUNT * 100;
+
+    /**
+     * Largest target amount accepted by {@link #alternatives}, whose prefix tables take one int per amount in
+     * minor units and denomination; in major units, so the same amount in every currency.
+     */
+    public static final double MAX_ALTERNATIVES_AMOUNT = 1000;
+
+    /**
+     * Search steps (nodes expanded) one {@link #alternatives} stream may take, and partial combinations it may
+     * hold, before it gives up with {@link AmountTooLargeException}: about a second of CPU and 16 MB at most.
+     */
+    public static final long MAX_ALTERNATIVES_EXPANSIONS = 1 << 22;
+    public static final int MAX_ALTERNATIVES_OPEN = 1 << 18;
+
+    /**
+     * Largest bounded DP {@link #solveBounded} runs (two int rows of this size). Amounts above it are reduced
+     * with the largest coin first; only when its inventory is too small for that is the request refused.
+     */
+    public static final int MAX_BOUNDED_DP_AMOUNT = 1 << 22;
+
+    /**
+     * DP buffers above this many entries are not kept for reuse; a handful of 10,000.00 requests would otherwise
+     * pin several megabytes for good.
+     */
+    private static final int MAX_RETAINED_DP_ENTRIES = 1 << 17;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Idle DP buffers, shared by every thread rather than kept per thread: with virtual threads every request
+     * runs on a new thread, which would start with empty buffers. At most one set per processor is kept, as
+     * many as fills can usefully run at once.
+     */
+    private static final ArrayBlockingQueue<DpBuffers> DP_BUFFERS =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    /** Presorted coins and greedy-optimality verdict per denomination set, indexed by {@link Denominations} mask. */
+    private final AtomicReferenceArray<CoinSystem> coinSystems;
+
+    private final Denominations denominations;
+
+    private final DpTableCache dpTableCache;
+    private final CoinChangeMetrics metrics;
+    private final double maxTargetAmount;
+    private final long maxAmountCents;
+    private final Semaphore dpPermits;
+    private final ResultCache resultCache;
+    private final ParallelDp parallelDp;
+
+    public CoinChangeService() {
+        this(null);
+    }
+
+    /**
+     * @param dpTableCache cache of DP tables shared across requests, or null to rebuild the table on every DP request
+     */
+    public CoinChangeService(DpTableCache dpTableCache) {
+        this(dpTableCache, new CoinChangeMetrics(new MetricRegistry()));
+    }
+
+    public CoinChangeService(DpTableCache dpTableCache, CoinChangeMetrics metrics) {
+        this(dpTableCache, metrics, DEFAULT_MAX_TARGET_AMOUNT);
+    }
+
+    /**
+     * @param maxTargetAmount largest accepted target amount, at most {@link #MAX_SUPPORTED_TARGET_AMOUNT}
+     */
+    public CoinChangeService(DpTableCache dpTableCache, CoinChangeMetrics metrics, double maxTargetAmount) {
+        this(dpTableCache, metrics, maxTargetAmount, 0);
+    }
+
+    /**
+     * @param maxConcurrentDp number of DP fills allowed to run at once (table lookups are not limited), or 0 for
+     *                        no limit. With virtual threads this keeps CPU-bound fills from pinning every carrier.
+     */
+    public CoinChangeService(DpTableCache dpTableCache, CoinChangeMetrics metrics, double maxTargetAmount,
+                             int maxConcurrentDp) {
+        this(dpTableCache, metrics, maxTargetAmount, maxConcurrentDp, null);
+    }
+
+    /**
+     * @param resultCache single-flight layer and cache for DP results, or null to compute every DP request
+     */
+    public CoinChangeService(DpTableCache dpTableCache, CoinChangeMetrics metrics, double maxTargetAmount,
+                             int maxConcurrentDp, ResultCache resultCache) {
+        this(dpTableCache, metrics, maxTargetAmount, maxConcurrentDp, resultCache, ParallelDp.SEQUENTIAL);
+    }
+
+    /**
+     * @param parallelDp fill engine for DP tables built by this service; the DP table cache has its own
+     */
+    public CoinChangeService(DpTableCache dpTableCache, CoinChangeMetrics metrics, double maxTargetAmount,
+                             int maxConcurrentDp, ResultCache resultCache, ParallelDp parallelDp) {
+        this(dpTableCache, metrics, maxTargetAmount, maxConcurrentDp > 0 ? new Semaphore(maxConcurrentDp) : null,
+                resultCache, parallelDp, Denominations.DEFAULT);
+    }
+
+    /**
+     * @param dpPermits     permits for DP fills, or null for no limit; services of several currencies share one so
+     *                      the limit holds across all of them
+     * @param denominations the currency's accepted denominations; amounts in "cents" throughout are in its minor
+     *                      units. The DP table cache may be shared between services, the result cache may not.
+     */
+    public CoinChangeService(DpTableCache dpTableCache, CoinChangeMetrics metrics, double maxTargetAmount,
+                             Semaphore dpPermits, ResultCache resultCache, ParallelDp parallelDp,
+                             Denominations denominations) {
+        if (maxTargetAmount < 0 || maxTargetAmount > MAX_SUPPORTED_TARGET_AMOUNT
+                || Math.round(maxTargetAmount * denominations.unit()) > MAX_SUPPORTED_AMOUNT_CENTS) {
+            throw new IllegalArgumentException("maxTargetAmount must be between 0 and " + MAX_SUPPORTED_TARGET_AMOUNT
+                    + " and at most " + MAX_SUPPORTED_AMOUNT_CENTS + " minor units");
+        }
+        this.dpTableCache = dpTableCache;
+        this.metrics = metrics;
+        this.denominations = denominations;
+        this.coinSystems = new AtomicReferenceArray<>(denominations.all() + 1);
+        this.maxTargetAmount = maxTargetAmount;
+        this.maxAmountCents = Math.round(maxTargetAmount * denominations.unit());
+        this.dpPermits = dpPermits;
+        this.resultCache = resultCache;
+        this.parallelDp = parallelDp;
+    }
+
+    public CoinChangeMetrics metrics() {
+        return metrics;
+    }
+
+    /** Largest accepted target amount. */
+    public double maxTargetAmount() {
+        return maxTargetAmount;
+    }
+
+    /** Largest accepted target amount in cents. */
+    public long maxAmountCents() {
+        return maxAmountCents;
+    }
+
+    /** Largest target amount in cents accepted by {@link #alternatives}, in the currency's minor units. */
+    public long maxAlternativesCents() {
+        return Math.min(maxAmountCents, Math.round(MAX_ALTERNATIVES_AMOUNT * denominations.unit()));
+    }
+
+    /** The currency's accepted denominations, which masks passed to this service refer to. */
+    public Denominations denominations() {
+        return denominations;
+    }
 
     /**
-     * using the greedy algorithm by default.
+     * Uses the greedy algorithm when it is provably optimal for the denomination set
+     * (see {@link CanonicalCoinSystem}), and dynamic programming otherwise.
      *
-     * @param targetAmount      Target amount in the range [0, 10000]
+     * @param targetAmount      Target amount in the range [0, maxTargetAmount]
      * @param coinDenominations List of available coin denominations
      * @return Minimum coin denomination list (sorted ascending)
-     * Time complexity: O(n log n + A / minCoin),
-     *   where n is the number of coin types, A is the amount (in cents), minCoin is the smallest coin denomination.
+     * Time complexity: O(n log n) for canonical sets (the verdict and sorted coins are memoized per set),
+     *   O(min(A, W) × n) for the others, where n is the number of coin types, A is the amount (in cents)
+     *   and W a per-set bound independent of A (see {@link CoinSystem#reduce}).
+     *   The returned list is a view over per-denomination counts and is not expanded up front.
      */
     public List<Double> calculateMinCoins(double targetAmount, List<Double> coinDenominations) {
-        return calculateMinCoins(targetAmount, coinDenominations, true);
+        return calculateMinCoins(targetAmount, coinDenominations, Algorithm.AUTO);
     }
 
     public List<Double> calculateMinCoins(double targetAmount, List<Double> coinDenominations, boolean useGreedy) {
-        if (targetAmount < 0 || targetAmount > 10000 || coinDenominations == null || coinDenominations.isEmpty()) {
+        return calculateMinCoins(targetAmount, coinDenominations, useGreedy ? Algorithm.GREEDY : Algorithm.DP);
+    }
+
+    private List<Double> calculateMinCoins(double targetAmount, List<Double> coinDenominations, Algorithm algorithm) {
+        int[] counts = countCoins(targetAmount, coinDenominations, algorithm);
+        if (counts == null) {
             return Collections.emptyList();
         }
+        return expand(counts, coinDenominations);
+    }
+
+    /**
+     * Compact variant of {@link #calculateMinCoins(double, List)}: returns how many coins of each
+     * denomination are used instead of one list element per coin.
+     *
+     * @param targetAmount      Target amount in the range [0, maxTargetAmount]
+     * @param coinDenominations List of available coin denominations
+     * @return denomination -> count pairs (ascending by denomination, zero counts omitted),
+     *   or an empty map if there is no solution
+     */
+    public Map<Double, Integer> calculateCoinCounts(double targetAmount, List<Double> coinDenominations) {
+        return calculateCoinCounts(targetAmount, coinDenominations, Algorithm.AUTO);
+    }
+
+    public Map<Double, Integer> calculateCoinCounts(double targetAmount, List<Double> coinDenominations,
+                                                    boolean useGreedy) {
+        return calculateCoinCounts(targetAmount, coinDenominations, useGreedy ? Algorithm.GREEDY : Algorithm.DP);
+    }
+
+    private Map<Double, Integer> calculateCoinCounts(double targetAmount, List<Double> coinDenominations,
+                                                     Algorithm algorithm) {
+        int[] counts = countCoins(targetAmount, coinDenominations, algorithm);
+        if (counts == null) {
+            return Collections.emptyMap();
+        }
+        return toCountMap(counts, coinDenominations);
+    }
+
+    /**
+     * Same algorithm selection as {@link #calculateMinCoins(double, List)}, but returns the raw counts.
+     *
+     * @return counts aligned with the indices of {@code coinDenominations}, or null if the input is
+     *   out of range or the amount cannot be formed
+     */
+    public int[] countCoins(double targetAmount, List<Double> coinDenominations) {
+        return countCoins(targetAmount, coinDenominations, Algorithm.AUTO);
+    }
+
+    /**
+     * Primitive core engine; uses greedy when it is provably optimal for the denomination set, DP otherwise.
+     *
+     * @param amountCents Target amount in cents, in the range [0, maxTargetAmount × 100]
+     * @param coinsCents  Available coin denominations in cents
+     * @return number of coins used per denomination, aligned with {@code coinsCents},
+     *   or null if the amount is out of range or cannot be formed
+     */
+    public int[] solve(long amountCents, int[] coinsCents) {
+        return solve(amountCents, coinsCents, Algorithm.AUTO);
+    }
+
+    /**
+     * Same as {@link #solve(long, int[])}, but lets the caller choose the algorithm.
+     * Apart from the returned array, the hot path works on reused scratch buffers and allocates nothing.
+     */
+    public int[] solve(long amountCents, int[] coinsCents, boolean useGreedy) {
+        return solve(amountCents, coinsCents, useGreedy ? Algorithm.GREEDY : Algorithm.DP);
+    }
+
+    /**
+     * @return true if greedy is optimal for every amount with this denomination set (memoized per set)
+     */
+    public boolean isGreedyOptimal(int[] coinsCents) {
+        int mask = denominations.mask(coinsCents, coinsCents.length);
+        if (mask <= 0) {
+            throw new IllegalArgumentException("Invalid denominations: " + Arrays.toString(coinsCents));
+        }
+        return coinSystem(mask).isCanonical();
+    }
+
+    /**
+     * Mask-based core engine for callers that already hold a {@link Denominations} mask (see the resource's
+     * request model): no conversion, validation or reordering beyond a bit test.
+     *
+     * @param amountCents      Target amount in cents, in the range [0, maxTargetAmount × 100]
+     * @param denominationMask non-empty {@link Denominations} mask
+     * @return number of coins used per denomination of the set, ascending by denomination,
+     *   or null if the amount is out of range or cannot be formed
+     */
+    public int[] solveByMask(long amountCents, int denominationMask) {
+        checkMask(denominationMask);
+        int[] counts = solveSorted(amountCents, denominationMask, Algorithm.AUTO);
+        // May be shared through the result cache
+        return counts == null ? null : counts.clone();
+    }
+
+    /**
+     * Limited-supply variant of {@link #solveByMask}: at most {@code available[j]} coins of the j-th denomination
+     * may be used.
+     *
+     * The unlimited-supply optimum is computed first (greedy, precomputed, cached or DP, as for any request).
+     * If it fits the inventory it is also optimal under the inventory, since limiting supply can only remove
+     * solutions, and it is returned as is. Otherwise the bounded problem is solved by {@link BoundedChange},
+     * whose cost depends on the amount and the number of denominations but not on the inventory size.
+     *
+     * @param amountCents      Target amount in cents, in the range [0, maxTargetAmount × 100]
+     * @param denominationMask non-empty {@link Denominations} mask
+     * @param available        coins available per denomination of the set, ascending by denomination
+     * @return number of coins used per denomination of the set, ascending by denomination,
+     *   or null if the amount is out of range or cannot be formed from the inventory
+     * @throws AmountTooLargeException if the bounded DP would need more than {@link #MAX_BOUNDED_DP_AMOUNT} entries
+     */
+    public int[] solveBounded(long amountCents, int denominationMask, int[] available) {
+        checkMask(denominationMask);
+        if (available == null || available.length != Integer.bitCount(denominationMask)) {
+            throw new IllegalArgumentException("One available count is required per denomination");
+        }
+        for (int count : available) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Available counts cannot be negative");
+            }
+        }
+
+        int[] unlimited = solveSorted(amountCents, denominationMask, Algorithm.AUTO);
+        if (unlimited == null) {
+            return null;
+        }
+        if (fits(unlimited, available)) {
+            return unlimited.clone();
+        }
+
+        int amount = (int) amountCents;
+        long start = System.nanoTime();
+        CoinSystem system = coinSystem(denominationMask);
+        int[] coins = system.coins();
+        int last = coins.length - 1;
+        // Largest coins every optimal solution uses are set aside; the bounded DP only covers the rest
+        int reserved = system.boundedReduction(amount, available[last]);
+        int window = amount - reserved * coins[last];
+        if (window > MAX_BOUNDED_DP_AMOUNT) {
+            throw new AmountTooLargeException("Limited inventories are supported for amounts the inventory of the "
+                    + "largest coin covers within " + MAX_BOUNDED_DP_AMOUNT + " minor units");
+        }
+        int[] rest = available;
+        if (reserved > 0) {
+            rest = available.clone();
+            rest[last] -= reserved;
+        }
+        int[] counts;
+        boolean permit = dpPermits != null;
+        if (permit) {
+            dpPermits.acquireUninterruptibly();
+        }
+        try {
+            counts = BoundedChange.solve(window, coins, rest);
+        } finally {
+            releaseDp(permit);
+        }
+        if (counts != null) {
+            counts[last] += reserved;
+        }
+        metrics.recordSolve(CoinChangeMetrics.BOUNDED, amount, denominations.unit(), coins.length,
+                System.nanoTime() - start, counts);
+        return counts;
+    }
+
+    /**
+     * Every coin combination forming the amount, lazily and in order of coin count: all optimal combinations
+     * first (the one {@link #solveByMask} returns is among them), then the near-optimal ones. Nothing is computed
+     * until the stream is consumed, and each combination costs only what is needed to reach it (see
+     * {@link Alternatives}); callers typically {@code limit} the stream.
+     *
+     * The search reads the DP tables of the set and of its prefix sets (its smallest denominations) from the DP
+     * table cache, filling them first if needed, so repeated requests for a set start searching right away.
+     * Without a cache each stream fills its own.
+     *
+     * @param amountCents      Target amount in cents, in the range [0, min(maxTargetAmount, MAX_ALTERNATIVES_AMOUNT) × unit]
+     * @param denominationMask non-empty {@link Denominations} mask
+     * @return counts per denomination of the set, ascending by denomination; empty if the amount is out of
+     *   range or cannot be formed. Consuming it throws {@link AmountTooLargeException} once the search exceeds
+     *   {@link #MAX_ALTERNATIVES_EXPANSIONS} steps or {@link #MAX_ALTERNATIVES_OPEN} partial combinations.
+     */
+    public Stream<int[]> alternatives(long amountCents, int denominationMask) {
+        checkMask(denominationMask);
+        if (amountCents < 0 || amountCents > maxAlternativesCents()) {
+            return Stream.empty();
+        }
+        int amount = (int) amountCents;
+        int[] coins = coinSystem(denominationMask).coins();
+        int characteristics = Spliterator.ORDERED | Spliterator.NONNULL;
+        return StreamSupport.stream(() -> Spliterators.spliteratorUnknownSize(
+                new Alternatives(amount, coins, prefixRows(amount, coins), MAX_ALTERNATIVES_EXPANSIONS,
+                        MAX_ALTERNATIVES_OPEN), characteristics), characteristics, false);
+    }
+
+    /**
+     * {@link #dpWork} for the first {@code count} combinations of {@link #alternatives}: the prefix DP rows still
+     * to fill, plus an upper estimate of the search, each of whose steps looks at up to n denominations.
+     */
+    public long alternativesWork(long amountCents, int denominationMask, long count) {
+        checkMask(denominationMask);
+        if (amountCents <= 0 || amountCents > maxAlternativesCents()) {
+            return 0;
+        }
+        int[] coins = coinSystem(denominationMask).coins();
+        long work = 0;
+        for (int j = 0; j < coins.length; j++) {
+            int filled = dpTableCache != null ? dpTableCache.limit(Arrays.copyOf(coins, j + 1)) : -1;
+            work += Math.max(0, amountCents - filled) * (j + 1);
+        }
+        // A combination has at most amount / smallest coin coins, each one step
+        long steps = Math.min(MAX_ALTERNATIVES_EXPANSIONS, count * (amountCents / coins[0] + 1));
+        return work + steps * coins.length;
+    }
+
+    /**
+     * @return {@code fewest[j]}: the DP table of the j + 1 smallest denominations, covering {@code amount}
+     */
+    private int[][] prefixRows(int amount, int[] coins) {
+        if (dpTableCache == null) {
+            return Alternatives.prefixRows(amount, coins);
+        }
+        int[][] fewest = new int[coins.length][];
+        for (int j = 0; j < coins.length; j++) {
+            int[] prefix = j == coins.length - 1 ? coins : Arrays.copyOf(coins, j + 1);
+            boolean permit = acquireDp(amount, prefix);
+            try {
+                fewest[j] = dpTableCache.fewest(amount, prefix);
+            } finally {
+                releaseDp(permit);
+            }
+        }
+        return fewest;
+    }
+
+    private static boolean fits(int[] counts, int[] available) {
+        for (int j = 0; j < counts.length; j++) {
+            if (counts[j] > available[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Warm-up: answers the given hot denomination sets from precomputed tables covering every amount up to
+     * {@link #maxTargetAmount()}. The tables live in a memory-mapped {@code file}; a file left by an earlier run
+     * for the same sets and limit is remapped as is, otherwise it is (re)built first. Canonical sets are skipped,
+     * since greedy already answers them in O(n).
+     *
+     * Thanks to {@link CoinSystem#reduce}, a table never needs more than W + largest coin entries (one byte each),
+     * however large the limit is.
+     *
+     * @return number of sets now answered by table lookup
+     */
+    public int loadPrecomputedTables(Path file, List<List<Double>> hotSets) throws IOException {
+        List<CoinSystem> systems = nonCanonical(hotSets);
+        if (systems.isEmpty()) {
+            return 0;
+        }
+
+        List<int[]> sortedSets = new ArrayList<>(systems.size());
+        int[] limits = new int[systems.size()];
+        for (int s = 0; s < limits.length; s++) {
+            sortedSets.add(systems.get(s).coins());
+            limits[s] = (int) Math.min(maxAmountCents, systems.get(s).maxReducedAmount());
+        }
+        List<PrecomputedTables.Table> tables = PrecomputedTables.open(file, sortedSets, limits, parallelDp);
+        for (int s = 0; s < limits.length; s++) {
+            systems.get(s).precomputed(tables.get(s));
+        }
+        return limits.length;
+    }
+
+    /**
+     * Startup preparation: builds the coin system (presorted coins and greedy-optimality verdict) of the full
+     * denomination set and of each of {@code sets}, so the first requests for them do no per-set work. With
+     * {@code warmDpTables}, the cached DP table of each non-canonical one is also filled up to the size that
+     * covers every amount up to {@link #maxTargetAmount()} (see {@link CoinSystem#reduce}).
+     *
+     * @return number of non-canonical sets among {@code sets}
+     */
+    public int prepare(List<List<Double>> sets, boolean warmDpTables) {
+        coinSystem(denominations.all()).isCanonical();
+        List<CoinSystem> systems = nonCanonical(sets);
+        if (warmDpTables && dpTableCache != null) {
+            for (CoinSystem system : systems) {
+                dpTableCache.counts((int) Math.min(maxAmountCents, system.maxReducedAmount()), system.coins());
+            }
+        }
+        return systems.size();
+    }
+
+    /**
+     * @return the distinct non-canonical coin systems among {@code sets}, each given as request values
+     */
+    private List<CoinSystem> nonCanonical(List<List<Double>> sets) {
+        List<CoinSystem> systems = new ArrayList<>();
+        for (List<Double> set : sets) {
+            if (set == null || set.isEmpty()) {
+                throw new IllegalArgumentException("Hot denomination sets cannot be empty");
+            }
+            int mask = 0;
+            for (Double coin : set) {
+                int bit = coin == null ? -1 : denominations.bit(coin);
+                if (bit < 0) {
+                    throw new IllegalArgumentException("Invalid denomination: " + coin);
+                }
+                mask |= 1 << bit;
+            }
+            CoinSystem system = coinSystem(mask);
+            if (!system.isCanonical() && !systems.contains(system)) {
+                systems.add(system);
+            }
+        }
+        return systems;
+    }
+
+    /**
+     * Estimates how much DP work solving {@code amountCents} would take right now, so callers can decide
+     * whether to run it inline or hand it to a worker pool.
+     *
+     * @return DP cells still to fill (reduced amount × coin types), or 0 when greedy, a precomputed table or
+     *   an already cached DP table answers it, or when the amount is out of range or cannot be formed
+     */
+    public long dpWork(long amountCents, int denominationMask) {
+        checkMask(denominationMask);
+        if (amountCents < 0 || amountCents > maxAmountCents) {
+            return 0;
+        }
+        CoinSystem system = coinSystem(denominationMask);
+        if (system.isCanonical() || system.precomputed() != null
+                || (resultCache != null && resultCache.contains(ResultCache.key(amountCents, denominationMask)))) {
+            return 0;
+        }
+        int reduced = system.reduce((int) amountCents);
+        if (reduced < 0) {
+            return 0;
+        }
+        int[] coins = system.coins();
+        int filled = dpTableCache != null ? dpTableCache.limit(coins) : -1;
+        return Math.max(0, (long) (reduced - filled) * coins.length);
+    }
+
+    /**
+     * {@link #dpWork} for {@link #solveBounded}.
+     *
+     * @return 0 when greedy answers the request within the inventory, otherwise the unlimited-supply DP work
+     *   plus the cells of the bounded DP and its reconstruction (amount × n(n + 1) / 2)
+     */
+    public long boundedDpWork(long amountCents, int denominationMask, int[] available) {
+        long work = dpWork(amountCents, denominationMask);
+        if (amountCents < 0 || amountCents > maxAmountCents) {
+            return work;
+        }
+        CoinSystem system = coinSystem(denominationMask);
+        if (system.isCanonical()) {
+            int[] greedy = system.greedy((int) amountCents);
+            if (greedy == null || fits(greedy, available)) {
+                return 0;
+            }
+        }
+        int[] coins = system.coins();
+        long window = amountCents - (long) system.boundedReduction((int) amountCents, available[coins.length - 1])
+                * coins[coins.length - 1];
+        long n = coins.length;
+        return work + window * n * (n + 1) / 2;
+    }
+
+    private CoinSystem coinSystem(int mask) {
+        CoinSystem system = coinSystems.get(mask);
+        if (system == null) {
+            // Benign race: a concurrent first caller may install an equivalent instance first
+            coinSystems.compareAndSet(mask, null, new CoinSystem(denominations.centsOf(mask)));
+            system = coinSystems.get(mask);
+        }
+        return system;
+    }
+
+    private void checkMask(int mask) {
+        if (mask <= 0 || mask > denominations.all()) {
+            throw new IllegalArgumentException("Invalid denomination mask: " + mask);
+        }
+    }
+
+    private int[] solve(long amountCents, int[] coinsCents, Algorithm algorithm) {
+        if (coinsCents == null || coinsCents.length == 0) {
+            return null;
+        }
+        for (int coin : coinsCents) {
+            if (!isValidDenomination(coin)) {
+                throw new IllegalArgumentException("Invalid denomination: " + coin / (double) denominations.unit());
+            }
+        }
+        return solve(amountCents, coinsCents, coinsCents.length, algorithm);
+    }
+
+    /**
+     * Validates the input and computes the number of coins used per denomination.
+     *
+     * @return counts aligned with the indices of {@code coinDenominations}, or null if the input is
+     *   out of range or the amount cannot be formed
+     */
+    private int[] countCoins(double targetAmount, List<Double> coinDenominations, Algorithm algorithm) {
+        if (targetAmount < 0 || targetAmount > maxTargetAmount || coinDenominations == null || coinDenominations.isEmpty()) {
+            return null;
+        }
 
         // Convert denominations to integers (unit: cents)
-        int amount = (int) Math.round(targetAmount * 100);
+        long amount = Math.round(targetAmount * denominations.unit());
         int n = coinDenominations.size();
 
         // Validate and convert denominations
-        int[] coins = new int[n];
+        int[] coins = SCRATCH.get().coins(n);
         for (int i = 0; i < n; i++) {
-            int coinVal = (int) Math.round(coinDenominations.get(i) * 100);
-            if (!VALID_DENOMINATIONS.contains(coinVal)) {
+            int coinVal = (int) Math.round(coinDenominations.get(i) * denominations.unit());
+            if (!isValidDenomination(coinVal)) {
                 throw new IllegalArgumentException("Invalid denomination: " + coinDenominations.get(i));
             }
             coins[i] = coinVal;
         }
 
-        if (useGreedy) {
-            return calculateByGreedy(amount, coins);
+        return solve(amount, coins, n, algorithm);
+    }
+
+    /**
+     * @param n number of leading entries of {@code coins} to use (scratch arrays may be longer);
+     *   every entry must be a valid denomination
+     */
+    private int[] solve(long amountCents, int[] coins, int n, Algorithm algorithm) {
+        int mask = denominations.mask(coins, n);
+        return toCallerOrder(solveSorted(amountCents, mask, algorithm), coins, n, denominations.centsOf(mask));
+    }
+
+    /**
+     * @return counts aligned with the ascending denominations of {@code mask}, or null if the amount is
+     *   out of range or cannot be formed
+     */
+    private int[] solveSorted(long amountCents, int mask, Algorithm algorithm) {
+        if (amountCents < 0 || amountCents > maxAmountCents) {
+            return null;
+        }
+        int amount = (int) amountCents;
+        long start = System.nanoTime();
+
+        CoinSystem system = coinSystem(mask);
+        int used;
+        int[] counts;
+        if (algorithm == Algorithm.GREEDY || (algorithm == Algorithm.AUTO && system.isCanonical())) {
+            used = CoinChangeMetrics.GREEDY;
+            counts = system.greedy(amount);
         } else {
-            return calculateByDP(amount, coins, coinDenominations);
+            used = system.precomputed() != null ? CoinChangeMetrics.PRECOMPUTED
+                    : dpTableCache != null ? CoinChangeMetrics.DP_CACHED : CoinChangeMetrics.DP;
+            counts = resultCache == null || used == CoinChangeMetrics.PRECOMPUTED
+                    ? calculateByDP(system, amount)
+                    : resultCache.get(ResultCache.key(amount, mask), () -> calculateByDP(system, amount), metrics);
+        }
+
+        metrics.recordSolve(used, amount, denominations.unit(), system.coins().length, System.nanoTime() - start,
+                counts);
+        return counts;
+    }
+
+    /**
+     * Solves many amounts against one denomination set. The per-set work (validation, canonicity verdict,
+     * greedy ordering, DP table) is done once for the whole group instead of once per amount.
+     *
+     * @param targetAmounts     Target amounts, each in the range [0, maxTargetAmount]
+     * @param coinDenominations List of available coin denominations
+     * @return one entry per amount: counts aligned with {@code coinDenominations}, or null if that amount is
+     *   out of range or cannot be formed
+     */
+    public int[][] countCoinsBatch(double[] targetAmounts, List<Double> coinDenominations) {
+        if (coinDenominations == null || coinDenominations.isEmpty()) {
+            return new int[targetAmounts.length][];
+        }
+
+        int n = coinDenominations.size();
+        int[] coins = new int[n];
+        for (int i = 0; i < n; i++) {
+            int coinVal = (int) Math.round(coinDenominations.get(i) * denominations.unit());
+            if (!isValidDenomination(coinVal)) {
+                throw new IllegalArgumentException("Invalid denomination: " + coinDenominations.get(i));
+            }
+            coins[i] = coinVal;
+        }
+
+        // Amounts in cents, -1 for out-of-range entries
+        long[] amounts = new long[targetAmounts.length];
+        for (int k = 0; k < amounts.length; k++) {
+            double target = targetAmounts[k];
+            amounts[k] = target < 0 || target > maxTargetAmount ? -1 : Math.round(target * denominations.unit());
+        }
+
+        int mask = denominations.mask(coins, n);
+        int[][] results = countCoinsBatch(amounts, mask);
+        for (int k = 0; k < results.length; k++) {
+            results[k] = toCallerOrder(results[k], coins, n, denominations.centsOf(mask));
         }
+        return results;
     }
 
     /**
-     * Overall complexity: O(n log n + A / minCoin),
-     *   where n is number of coin types, A is amount (in cents), minCoin is smallest coin.
+     * Mask-based variant of {@link #countCoinsBatch(double[], List)}.
+     *
+     * @param amountsCents     Target amounts in cents, each in the range [0, maxTargetAmount × 100]
+     * @param denominationMask non-empty {@link Denominations} mask
+     * @return one entry per amount: counts ascending by denomination, or null if that amount is
+     *   out of range or cannot be formed
      */
-    private List<Double> calculateByGreedy(int amount, int[] coins) {
-        List<Integer> coinList = new ArrayList<>();
-        for (int c : coins) coinList.add(c);
-        coinList.sort(Comparator.reverseOrder());
-        List<Double> result = new ArrayList<>();
-        for (int coin : coinList) {
-            while (amount >= coin) {
-                amount -= coin;
-                result.add(coin / 100.0);
+    public int[][] countCoinsBatch(long[] amountsCents, int denominationMask) {
+        checkMask(denominationMask);
+        int[][] results = new int[amountsCents.length][];
+
+        // Amounts in cents, -1 for out-of-range entries
+        int[] amounts = new int[amountsCents.length];
+        for (int k = 0; k < amounts.length; k++) {
+            long amount = amountsCents[k];
+            amounts[k] = amount < 0 || amount > maxAmountCents ? -1 : (int) amount;
+        }
+
+        // Shared per-set work is attributed to the first item solved
+        long start = System.nanoTime();
+        CoinSystem system = coinSystem(denominationMask);
+        int[] sortedCoins = system.coins();
+        int n = sortedCoins.length;
+        if (system.isCanonical()) {
+            for (int k = 0; k < amounts.length; k++) {
+                if (amounts[k] >= 0) {
+                    results[k] = system.greedy(amounts[k]);
+                    start = record(CoinChangeMetrics.GREEDY, amounts[k], n, start, results[k]);
+                }
             }
+            return results;
         }
 
-        // If there's remaining amount, it means it's not possible to form the target
-        if (amount > 0) {
-            return Collections.emptyList();
+        if (system.precomputed() != null) {
+            for (int k = 0; k < amounts.length; k++) {
+                if (amounts[k] >= 0) {
+                    results[k] = calculateByDP(system, amounts[k]);
+                    start = record(CoinChangeMetrics.PRECOMPUTED, amounts[k], n, start, results[k]);
+                }
+            }
+            return results;
         }
 
-        Collections.sort(result);
+        // DP on the reduced amounts; the largest one sizes the shared table
+        int[] reduced = new int[amounts.length];
+        int maxReduced = 0;
+        for (int k = 0; k < amounts.length; k++) {
+            reduced[k] = amounts[k] >= 0 ? system.reduce(amounts[k]) : -1;
+            maxReduced = Math.max(maxReduced, reduced[k]);
+        }
+
+        int largest = sortedCoins[n - 1];
+        int used = dpTableCache != null ? CoinChangeMetrics.DP_CACHED : CoinChangeMetrics.DP;
+        int[] dp = null;
+        byte[] coinUsed = null;
+        boolean permit = acquireDp(maxReduced, sortedCoins);
+        try {
+            if (dpTableCache != null) {
+                // Extends the cached table once to the largest amount; every other amount is then a cache hit
+                dpTableCache.counts(maxReduced, sortedCoins);
+            } else {
+                dp = new int[maxReduced + 1];
+                coinUsed = new byte[maxReduced + 1];
+                fillDP(maxReduced, sortedCoins, dp, coinUsed);
+            }
+        } finally {
+            releaseDp(permit);
+        }
+        for (int k = 0; k < amounts.length; k++) {
+            if (amounts[k] < 0) {
+                continue;
+            }
+            int[] sortedCounts = null;
+            if (reduced[k] >= 0) {
+                sortedCounts = dpTableCache != null
+                        ? dpTableCache.counts(reduced[k], sortedCoins)
+                        : backtrack(reduced[k], sortedCoins, dp, coinUsed);
+            }
+            if (sortedCounts != null) {
+                sortedCounts[n - 1] += (amounts[k] - reduced[k]) / largest;
+            }
+            results[k] = sortedCounts;
+            start = record(used, amounts[k], n, start, results[k]);
+        }
+        return results;
+    }
+
+    /**
+     * Records one solved item of a batch and returns the start time of the next one.
+     */
+    private long record(int algorithm, int amount, int n, long start, int[] counts) {
+        long now = System.nanoTime();
+        metrics.recordSolve(algorithm, amount, denominations.unit(), n, now - start, counts);
+        return now;
+    }
+
+    /**
+     * Flat coin list (sorted ascending) for per-denomination counts aligned with {@code coinDenominations}.
+     * The list is a read-only view; coins are only produced while it is iterated.
+     */
+    public List<Double> toCoinList(int[] counts, List<Double> coinDenominations) {
+        return expand(counts, coinDenominations);
+    }
+
+    /**
+     * Same as {@link #toCoinList(int[], List)} for counts returned by the mask-based methods.
+     */
+    public List<Double> toCoinList(int[] counts, int denominationMask) {
+        return new CoinList(denominations.valuesOf(denominationMask), counts);
+    }
+
+    /**
+     * Converts per-denomination counts (aligned with {@code coinDenominations}) into denomination -> count pairs,
+     * ascending by denomination with zero counts omitted.
+     */
+    public Map<Double, Integer> toCountMap(int[] counts, List<Double> coinDenominations) {
+        int n = coinDenominations.size();
+        int[] order = ascendingOrder(coinDenominations, SCRATCH.get().order(n));
+        Map<Double, Integer> result = new LinkedHashMap<>();
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            if (counts[i] > 0) {
+                result.merge(coinDenominations.get(i), counts[i], Integer::sum);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #toCountMap(int[], List)} for counts returned by the mask-based methods.
+     */
+    public Map<Double, Integer> toCountMap(int[] counts, int denominationMask) {
+        Double[] values = denominations.valuesOf(denominationMask);
+        Map<Double, Integer> result = new LinkedHashMap<>();
+        for (int k = 0; k < values.length; k++) {
+            if (counts[k] > 0) {
+                result.put(values[k], counts[k]);
+            }
+        }
         return result;
     }
 
     /**
      * Dynamic programming implementation, suitable for arbitrary coin combinations, guarantees optimality.
+     * Large amounts are first reduced by a number of largest coins that every optimal solution contains
+     * (see {@link CoinSystem#reduce}), so memory per request is bounded independently of the amount.
      *
      * Time complexity:
-     * - Nested loops over amount A and coin types n
-     * - Overall complexity O(A × n)
+     * - Nested loops over the reduced amount R ≤ min(A, W + largest coin) and coin types n
+     * - Overall complexity O(R × n), or O(result) when a cached or precomputed table already covers R
      *
      * Space complexity:
-     * - O(A), used for dp array and coinUsed array
+     * - O(R), used for dp array and coinUsed array (reused across requests up to {@link #MAX_RETAINED_DP_ENTRIES})
+     *
+     * @return counts aligned with {@link CoinSystem#coins()}, or null if the amount cannot be formed
      */
-    private List<Double> calculateByDP(int amount, int[] coins, List<Double> coinDenominations) {
-        int MAX = amount + 1;
-        int[] dp = new int[amount + 1];         // dp[i]: minimum coins needed to form amount i
-        int[] coinUsed = new int[amount + 1];   // records the coin index used to form amount i
-        Arrays.fill(dp, MAX);
-        dp[0] = 0;
+    private int[] calculateByDP(CoinSystem system, int amount) {
+        int reduced = system.reduce(amount);
+        if (reduced < 0) {
+            return null;
+        }
 
-        for (int i = 1; i <= amount; i++) {
-            for (int j = 0; j < coins.length; j++) {
-                if (coins[j] <= i && dp[i - coins[j]] + 1 < dp[i]) {
-                    dp[i] = dp[i - coins[j]] + 1;
-                    coinUsed[i] = j;
+        int[] coins = system.coins();
+        PrecomputedTables.Table precomputed = system.precomputed();
+        int[] counts;
+        if (precomputed != null && reduced <= precomputed.limit()) {
+            counts = precomputed.counts(reduced);
+        } else {
+            boolean permit = acquireDp(reduced, coins);
+            try {
+                if (dpTableCache != null) {
+                    counts = dpTableCache.counts(reduced, coins);
+                } else {
+                    DpBuffers buffers = DP_BUFFERS.poll();
+                    if (buffers == null) {
+                        buffers = new DpBuffers();
+                    }
+                    int[] dp = buffers.dp(reduced + 1);         // dp[i]: minimum coins needed to form amount i
+                    byte[] coinUsed = buffers.coinUsed(reduced + 1);  // records the coin index used to form amount i
+                    fillDP(reduced, coins, dp, coinUsed);
+                    counts = backtrack(reduced, coins, dp, coinUsed);
+                    DP_BUFFERS.offer(buffers);  // dropped if enough are idle already
                 }
+            } finally {
+                releaseDp(permit);
             }
         }
 
-        if (dp[amount] == MAX) {
-            return Collections.emptyList();
+        if (counts != null) {
+            counts[coins.length - 1] += (amount - reduced) / coins[coins.length - 1];
         }
+        return counts;
+    }
 
-        // Backtrack to find the coin combination
-        List<Double> result = new ArrayList<>();
+    /**
+     * Takes a DP permit if {@code maxConcurrentDp} is set and solving {@code amount} needs a fill, i.e. no cached
+     * table covers it yet.
+     *
+     * @return true if a permit was taken and must be given back with {@link #releaseDp(boolean)}
+     */
+    private boolean acquireDp(int amount, int[] sortedCoins) {
+        if (dpPermits == null || (dpTableCache != null && dpTableCache.limit(sortedCoins) >= amount)) {
+            return false;
+        }
+        dpPermits.acquireUninterruptibly();
+        return true;
+    }
+
+    private void releaseDp(boolean acquired) {
+        if (acquired) {
+            dpPermits.release();
+        }
+    }
+
+    /**
+     * Fills {@code dp} and {@code coinUsed} for every amount up to {@code amount}, in parallel for large amounts
+     * (see {@link ParallelDp}); unreachable amounts get {@link ParallelDp#UNREACHABLE}.
+     */
+    private void fillDP(int amount, int[] coins, int[] dp, byte[] coinUsed) {
+        dp[0] = 0;
+        parallelDp.fill(coins, dp, coinUsed, 0, amount);
+    }
+
+    /**
+     * @param dp table filled by {@link #fillDP} for an amount of at least {@code amount}
+     */
+    private static int[] backtrack(int amount, int[] coins, int[] dp, byte[] coinUsed) {
+        if (dp[amount] > amount) {
+            return null;
+        }
+
+        // Backtrack to count the coins of each denomination
+        int[] counts = new int[coins.length];
         int remaining = amount;
         while (remaining > 0) {
             int cIndex = coinUsed[remaining];
-            double coinValue = coinDenominations.get(cIndex);
-            result.add(coinValue);
-            remaining -= (int) Math.round(coinValue * 100);
+            counts[cIndex]++;
+            remaining -= coins[cIndex];
         }
+        return counts;
+    }
 
-        Collections.sort(result);
-        return result;
+    /**
+     * Maps counts aligned with {@code sortedCoins} back onto the caller's indices;
+     * duplicated denominations are credited to the first occurrence.
+     */
+    private static int[] toCallerOrder(int[] sortedCounts, int[] coins, int n, int[] sortedCoins) {
+        if (sortedCounts == null) {
+            return null;
+        }
+
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            boolean first = true;
+            for (int k = 0; k < i && first; k++) {
+                first = coins[k] != coins[i];
+            }
+            if (first) {
+                counts[i] = sortedCounts[Arrays.binarySearch(sortedCoins, coins[i])];
+            }
+        }
+        return counts;
+    }
+
+    private boolean isValidDenomination(int cents) {
+        return denominations.bit(cents) >= 0;
+    }
+
+    /**
+     * Wraps per-denomination counts in a lazily expanded coin list (sorted ascending).
+     */
+    private static List<Double> expand(int[] counts, List<Double> coinDenominations) {
+        int n = coinDenominations.size();
+        int[] order = ascendingOrder(coinDenominations, SCRATCH.get().order(n));
+
+        // Merge duplicated denominations so every value appears as one run
+        Double[] values = new Double[n];
+        int[] runCounts = new int[n];
+        int runs = 0;
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            Double coin = coinDenominations.get(i);
+            if (runs > 0 && values[runs - 1].equals(coin)) {
+                runCounts[runs - 1] += counts[i];
+            } else {
+                values[runs] = coin;
+                runCounts[runs++] = counts[i];
+            }
+        }
+        return new CoinList(Arrays.copyOf(values, runs), Arrays.copyOf(runCounts, runs));
+    }
+
+    /**
+     * Fills {@code order} with the indices of {@code coinDenominations} ordered by ascending value.
+     */
+    private static int[] ascendingOrder(List<Double> coinDenominations, int[] order) {
+        int n = coinDenominations.size();
+        for (int i = 0; i < n; i++) order[i] = i;
+        // Insertion sort: n is at most a dozen denominations
+        for (int i = 1; i < n; i++) {
+            int idx = order[i];
+            double value = coinDenominations.get(idx);
+            int j = i - 1;
+            while (j >= 0 && coinDenominations.get(order[j]) > value) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = idx;
+        }
+        return order;
+    }
+
+    private enum Algorithm {
+        /** Greedy if provably optimal for the denomination set, DP otherwise. */
+        AUTO,
+        GREEDY,
+        DP
+    }
+
+    /**
+     * Per-thread working buffers for the primitive engine. Arrays only grow, so steady-state requests
+     * reuse them instead of allocating.
+     */
+    private static final class Scratch {
+        private int[] order = new int[16];
+        private int[] coins = new int[16];
+
+        int[] order(int n) {
+            if (order.length < n) order = new int[n];
+            return order;
+        }
+
+        int[] coins(int n) {
+            if (coins.length < n) coins = new int[n];
+            return coins;
+        }
+    }
+
+    /**
+     * DP table buffers of one fill, taken from and given back to {@link #DP_BUFFERS}. Arrays only grow, up to
+     * {@link #MAX_RETAINED_DP_ENTRIES}; larger tables are allocated per fill.
+     */
+    private static final class DpBuffers {
+        private int[] dp = new int[0];
+        private byte[] coinUsed = new byte[0];
+
+        int[] dp(int size) {
+            if (dp.length >= size) return dp;
+            int[] array = new int[size];
+            if (size <= MAX_RETAINED_DP_ENTRIES) dp = array;
+            return array;
+        }
+
+        byte[] coinUsed(int size) {
+            if (coinUsed.length >= size) return coinUsed;
+            byte[] array = new byte[size];
+            if (size <= MAX_RETAINED_DP_ENTRIES) coinUsed = array;
+            return array;
+        }
     }
 }
@@ -0,0 +1,71 @@
+package org.example.coinchangeservice.service;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Immutable flat coin list (sorted ascending) backed by per-denomination counts.
+ *
+ * Nothing is expanded up front: a 10,000.00 answer in 0.01 coins is a list of one million elements
+ * held in a few dozen bytes. Elements are only produced while the caller iterates, e.g. while Jackson
+ * writes the response.
+ */
+final class CoinList extends AbstractList<Double> implements RandomAccess {
+
+    private final Double[] coins;   // distinct values, ascending
+    private final int[] ends;       // ends[k]: exclusive end index of the run of coins[k]
+
+    /**
+     * @param coins  distinct coin values, ascending
+     * @param counts number of coins of each value, aligned with {@code coins}
+     */
+    CoinList(Double[] coins, int[] counts) {
+        this.coins = coins;
+        this.ends = new int[counts.length];
+        int end = 0;
+        for (int k = 0; k < counts.length; k++) {
+            end += counts[k];
+            ends[k] = end;
+        }
+    }
+
+    @Override
+    public Double get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int k = 0;
+        while (ends[k] <= index) k++;
+        return coins[k];
+    }
+
+    @Override
+    public int size() {
+        return ends.length == 0 ? 0 : ends[ends.length - 1];
+    }
+
+    @Override
+    public Iterator<Double> iterator() {
+        return new Iterator<>() {
+            private int index;
+            private int run;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public Double next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                while (ends[run] <= index) run++;
+                index++;
+                return coins[run];
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.coinchangeservice.service;
+
+import java.util.Arrays;
+
+/**
+ * Hash key for a canonical (sorted, distinct) denomination set in cents.
+ */
+final class CoinSetKey {
+    private final int[] coins;
+    private final int hash;
+
+    CoinSetKey(int[] sortedCoins) {
+        this.coins = sortedCoins;
+        this.hash = Arrays.hashCode(sortedCoins);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CoinSetKey && Arrays.equals(coins, ((CoinSetKey) o).coins);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.coinchangeservice.service;
+
+/**
+ * Per-denomination-set data that does not depend on the amount: the coins sorted once, and the
+ * greedy-optimality verdict computed on first use. Instances are shared by every request for the same set.
+ */
+final class CoinSystem {
+
+    private final int[] coins;   // distinct denominations in cents, ascending
+    private final long reductionBound;
+    private final long maxExchange;  // most largest coins one exchange in the reduction argument takes
+    private volatile Boolean canonical;
+    private volatile PrecomputedTables.Table precomputed;
+
+    CoinSystem(int[] sortedCoins) {
+        this.coins = sortedCoins;
+
+        // An optimal solution never holds lcm(c, largest) / c coins of a smaller denomination c: that many coins
+        // can be swapped for fewer largest coins of the same total. So its non-largest coins sum to at most W.
+        int largest = sortedCoins[sortedCoins.length - 1];
+        long bound = 0;
+        long exchange = 1;
+        for (int i = 0; i < sortedCoins.length - 1; i++) {
+            long lcm = lcm(sortedCoins[i], largest);
+            bound += lcm - sortedCoins[i];
+            exchange = Math.max(exchange, lcm / largest);
+        }
+        this.reductionBound = bound;
+        this.maxExchange = exchange;
+    }
+
+    int[] coins() {
+        return coins;
+    }
+
+    /** Largest amount {@link #reduce} can return, i.e. the DP size that covers every amount. */
+    int maxReducedAmount() {
+        return (int) Math.min(Integer.MAX_VALUE, reductionBound + coins[coins.length - 1]);
+    }
+
+    /** Precomputed answers for this set, or null if the set was not warmed up. */
+    PrecomputedTables.Table precomputed() {
+        return precomputed;
+    }
+
+    void precomputed(PrecomputedTables.Table table) {
+        this.precomputed = table;
+    }
+
+    /** True if greedy is optimal for every amount (see {@link CanonicalCoinSystem}). */
+    boolean isCanonical() {
+        Boolean verdict = canonical;
+        if (verdict == null) {
+            // Benign race: concurrent first callers compute the same verdict
+            verdict = CanonicalCoinSystem.isCanonical(coins);
+            canonical = verdict;
+        }
+        return verdict;
+    }
+
+    /**
+     * Reduces a large amount to an equivalent one with bounded DP size. For an amount A above W + largest
+     * (W being the bound computed in the constructor), every optimal solution uses at least
+     * k = ceil((A - W) / largest) largest coins, so opt(A) = opt(A - k × largest) + k. The DP therefore never
+     * needs more than W + largest entries, no matter how large the amount is.
+     *
+     * @return the amount to solve by DP (the caller adds {@code (amount - result) / largest} largest coins),
+     *   or a negative value if the amount cannot be formed
+     */
+    int reduce(int amount) {
+        int largest = coins[coins.length - 1];
+        if (amount <= reductionBound + largest) {
+            return amount;
+        }
+        long k = (amount - reductionBound + largest - 1) / largest;
+        return (int) (amount - k * largest);
+    }
+
+    /**
+     * {@link #reduce} under a limited supply of the largest coin. The exchange argument still holds as long as
+     * the inventory has the largest coins an exchange adds: with k as in {@link #reduce} and m the most largest
+     * coins one exchange needs, every optimal bounded solution uses at least min(k, largestAvailable - m + 1)
+     * largest coins. Those can be set aside, leaving a bounded DP over the same window as the unlimited one
+     * unless the inventory of the largest coin runs out first.
+     *
+     * @return number of largest coins every optimal bounded solution uses
+     */
+    int boundedReduction(int amount, int largestAvailable) {
+        int largest = coins[coins.length - 1];
+        if (amount <= reductionBound + largest) {
+            return 0;
+        }
+        long k = (amount - reductionBound + largest - 1) / largest;
+        return (int) Math.max(0, Math.min(k, largestAvailable - maxExchange + 1));
+    }
+
+    /**
+     * Closed-form greedy: one division and one remainder per denomination, largest first.
+     *
+     * Time complexity: O(n), independent of the amount.
+     *
+     * @return coins used per denomination, aligned with {@link #coins()}, or null if the amount cannot be formed
+     */
+    int[] greedy(int amount) {
+        int[] counts = new int[coins.length];
+        for (int j = coins.length - 1; j >= 0 && amount > 0; j--) {
+            counts[j] = amount / coins[j];
+            amount %= coins[j];
+        }
+
+        // If there's remaining amount, it means it's not possible to form the target
+        return amount > 0 ? null : counts;
+    }
+
+    private static long lcm(int a, int b) {
+        int x = a, y = b;
+        while (y != 0) {
+            int t = x % y;
+            x = y;
+            y = t;
+        }
+        return (long) a / x * b;
+    }
+}
@@ -0,0 +1,164 @@
+package org.example.coinchangeservice.service;
+
+import java.util.Arrays;
+
+/**
+ * The universe of accepted denominations of one currency, in its minor units ("cents"). A denomination set is
+ * encoded as a mask over it (bit i = the i-th smallest denomination), so validating a coin is a binary search
+ * over a handful of ints, duplicates collapse for free and a set is identified by a plain {@code int}.
+ * Sorted coins and values are built for every set up front, so no request ever sorts or boxes a coin.
+ */
+public final class Denominations {
+
+    /** Largest universe: masks stay small enough to index per-set arrays and to pack into cache keys. */
+    public static final int MAX_SIZE = 16;
+
+    /** Largest number of decimal places (minor unit digits) of a currency. */
+    public static final int MAX_SCALE = 3;
+
+    /**
+     * The service's original coin set: 0.01 to 1000 in cents. Only the default engine uses it; limits and metric
+     * buckets are derived from each engine's own {@link #unit()}.
+     */
+    public static final Denominations DEFAULT =
+            new Denominations(2, new int[]{1, 5, 10, 20, 50, 100, 200, 500, 1000, 5000, 10000, 100000});
+
+    private final int scale;
+    private final long unit;
+
+    /** Accepted denominations in minor units, ascending; bit i of a mask stands for {@code cents[i]}. */
+    private final int[] cents;
+
+    /** The same denominations as request values; shared so results never box a coin value. */
+    private final Double[] values;
+
+    private final int all;
+
+    /** Sorted cents and values per mask, built once: 2^size sets. */
+    private final int[][] sortedCents;
+    private final Double[][] sortedValues;
+
+    /**
+     * @param scale      decimal places of the minor unit (2 for cents, 0 for currencies without one)
+     * @param minorUnits accepted denominations in minor units; sorted and deduplicated here
+     */
+    public Denominations(int scale, int[] minorUnits) {
+        if (scale < 0 || scale > MAX_SCALE) {
+            throw new IllegalArgumentException("scale must be between 0 and " + MAX_SCALE);
+        }
+        int[] sorted = Arrays.stream(minorUnits).sorted().distinct().toArray();
+        if (sorted.length == 0 || sorted.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_SIZE + " denominations are required");
+        }
+        if (sorted[0] <= 0) {
+            throw new IllegalArgumentException("Denominations must be positive");
+        }
+        this.scale = scale;
+        this.unit = MinorUnits.pow10(scale);
+        this.cents = sorted;
+        this.values = new Double[sorted.length];
+        for (int bit = 0; bit < sorted.length; bit++) {
+            // Both operands are exact, so the quotient is the double closest to the decimal, as when parsed
+            values[bit] = sorted[bit] / (double) unit;
+        }
+        this.all = (1 << sorted.length) - 1;
+
+        this.sortedCents = new int[all + 1][];
+        this.sortedValues = new Double[all + 1][];
+        for (int mask = 0; mask <= all; mask++) {
+            int[] setCents = new int[Integer.bitCount(mask)];
+            Double[] setValues = new Double[setCents.length];
+            for (int bit = 0, k = 0; bit < sorted.length; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    setCents[k] = sorted[bit];
+                    setValues[k++] = values[bit];
+                }
+            }
+            sortedCents[mask] = setCents;
+            sortedValues[mask] = setValues;
+        }
+    }
+
+    /** @return number of denominations in the universe */
+    public int size() {
+        return cents.length;
+    }
+
+    /** @return mask of the full universe; every non-empty set is a mask in {@code [1, all()]} */
+    public int all() {
+        return all;
+    }
+
+    /** @return decimal places of the minor unit */
+    public int scale() {
+        return scale;
+    }
+
+    /** @return minor units per major unit (10^scale) */
+    public long unit() {
+        return unit;
+    }
+
+    /**
+     * @return the bit of a denomination given as a request value, or -1 if it is not accepted.
+     *   Only exact values match (0.01 does, 0.0100001 does not).
+     */
+    public int bit(double value) {
+        if (!(value > 0 && value <= values[values.length - 1])) {
+            return -1;
+        }
+        int bit = bit((int) Math.round(value * unit));
+        return bit >= 0 && values[bit] == value ? bit : -1;
+    }
+
+    /**
+     * @return the bit of a denomination given in minor units, or -1 if it is not accepted
+     */
+    public int bit(int cents) {
+        int bit = Arrays.binarySearch(this.cents, cents);
+        return bit >= 0 ? bit : -1;
+    }
+
+    /**
+     * @return the mask of the first {@code n} denominations in minor units, or -1 if any of them is not accepted
+     */
+    public int mask(int[] cents, int n) {
+        int mask = 0;
+        for (int i = 0; i < n; i++) {
+            int bit = bit(cents[i]);
+            if (bit < 0) {
+                return -1;
+            }
+            mask |= 1 << bit;
+        }
+        return mask;
+    }
+
+    /**
+     * @return the denomination at {@code bit} in minor units
+     */
+    public int cents(int bit) {
+        return cents[bit];
+    }
+
+    /**
+     * @return the request value of the denomination at {@code bit}
+     */
+    public Double value(int bit) {
+        return values[bit];
+    }
+
+    /**
+     * @return the denominations of {@code mask} in minor units, ascending. Shared; callers must not modify it.
+     */
+    int[] centsOf(int mask) {
+        return sortedCents[mask];
+    }
+
+    /**
+     * @return the denominations of {@code mask} as request values, ascending. Shared; callers must not modify it.
+     */
+    Double[] valuesOf(int mask) {
+        return sortedValues[mask];
+    }
+}
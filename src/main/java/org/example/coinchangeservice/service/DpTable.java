@@ -0,0 +1,112 @@
+package org.example.coinchangeservice.service;
+
+import java.util.Arrays;
+
+/**
+ * DP table for one canonical (sorted, distinct) denomination set, computed lazily and extended
+ * incrementally as larger amounts are requested.
+ *
+ * Readers never lock: they work on an immutable {@link Snapshot} whose entries up to {@code limit}
+ * never change. Extension is serialized per table and only computes the entries past the previous limit.
+ */
+final class DpTable {
+
+    private static final int UNREACHABLE = ParallelDp.UNREACHABLE;
+
+    private final int[] coins;
+    private final ParallelDp engine;
+    private volatile Snapshot snapshot;
+
+    DpTable(int[] sortedCoins, ParallelDp engine) {
+        this.coins = sortedCoins;
+        this.engine = engine;
+        int[] dp = new int[1];
+        byte[] coinUsed = new byte[1];
+        this.snapshot = new Snapshot(dp, coinUsed, 0);
+    }
+
+    int[] coins() {
+        return coins;
+    }
+
+    /** Highest amount (in cents) that can currently be answered without extending the table. */
+    int limit() {
+        return snapshot.limit;
+    }
+
+    /** Number of array entries currently held by this table. */
+    int capacity() {
+        return snapshot.dp.length;
+    }
+
+    /**
+     * @return the fewest coins per amount ({@link ParallelDp#UNREACHABLE} if none), extended to cover
+     *   {@code amount} first if needed; entries up to {@code amount} never change, and must only be read
+     */
+    int[] fewest(int amount) {
+        Snapshot s = snapshot;
+        if (amount > s.limit) {
+            s = extendTo(amount);
+        }
+        return s.dp;
+    }
+
+    /**
+     * @return coins used per denomination, aligned with {@link #coins()}, or null if the amount cannot be formed.
+     * Time complexity: O(result) if the table already covers {@code amount}, otherwise O((amount - limit) × n) first.
+     */
+    int[] counts(int amount) {
+        Snapshot s = snapshot;
+        if (amount > s.limit) {
+            s = extendTo(amount);
+        }
+        if (s.dp[amount] == UNREACHABLE) {
+            return null;
+        }
+
+        // Backtrack to count the coins of each denomination
+        int[] counts = new int[coins.length];
+        int remaining = amount;
+        while (remaining > 0) {
+            int cIndex = s.coinUsed[remaining];
+            counts[cIndex]++;
+            remaining -= coins[cIndex];
+        }
+        return counts;
+    }
+
+    private synchronized Snapshot extendTo(int amount) {
+        Snapshot s = snapshot;
+        if (amount <= s.limit) {
+            return s; // another thread extended it in the meantime
+        }
+
+        int[] dp = s.dp;
+        byte[] coinUsed = s.coinUsed;
+        if (dp.length <= amount) {
+            // Grow geometrically so a run of slightly increasing amounts does not copy the table every time
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(amount + 1L, 2L * dp.length));
+            dp = Arrays.copyOf(dp, capacity);
+            coinUsed = Arrays.copyOf(coinUsed, capacity);
+        }
+
+        // Entries past the previous limit are invisible to readers until the new snapshot is published
+        engine.fill(coins, dp, coinUsed, s.limit, amount);
+
+        Snapshot extended = new Snapshot(dp, coinUsed, amount);
+        snapshot = extended;
+        return extended;
+    }
+
+    private static final class Snapshot {
+        final int[] dp;          // dp[i]: minimum coins needed to form amount i
+        final byte[] coinUsed;   // index into coins of the last coin used to form amount i
+        final int limit;
+
+        Snapshot(int[] dp, byte[] coinUsed, int limit) {
+            this.dp = dp;
+            this.coinUsed = coinUsed;
+            this.limit = limit;
+        }
+    }
+}
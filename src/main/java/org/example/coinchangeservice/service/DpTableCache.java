@@ -0,0 +1,152 @@
+package org.example.coinchangeservice.service;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * Bounded LRU cache of {@link DpTable}s keyed by the canonical (sorted, distinct) denomination set.
+ *
+ * Clients send the same few denomination sets over and over, so the DP table built for one request
+ * answers every later request for that set up to the computed amount in O(result) time.
+ * Eviction is least-recently-used, bounded both by number of tables and by total table entries.
+ */
+public class DpTableCache {
+
+    private final int maxTables;
+    private final long maxEntries;
+    private final ParallelDp engine;
+    private final LinkedHashMap<CoinSetKey, DpTable> tables = new LinkedHashMap<>(16, 0.75f, true);
+    // Same tables for lock-free probes that must not count as a use; only changed under the cache's lock
+    private final Map<CoinSetKey, DpTable> index = new ConcurrentHashMap<>();
+
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter extensions;
+    private final Meter evictions;
+
+    /**
+     * @param maxTables  maximum number of denomination sets kept
+     * @param maxEntries maximum number of DP entries (amounts) kept across all tables
+     * @param metrics    registry receiving hit/miss/extension/eviction meters and size gauges
+     */
+    public DpTableCache(int maxTables, long maxEntries, MetricRegistry metrics) {
+        this(maxTables, maxEntries, metrics, ParallelDp.SEQUENTIAL);
+    }
+
+    /**
+     * @param engine fill engine used when a table is created or extended
+     */
+    public DpTableCache(int maxTables, long maxEntries, MetricRegistry metrics, ParallelDp engine) {
+        if (maxTables < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("DP cache bounds must be positive");
+        }
+        this.maxTables = maxTables;
+        this.maxEntries = maxEntries;
+        this.engine = engine;
+        this.hits = metrics.meter(name(DpTableCache.class, "hits"));
+        this.misses = metrics.meter(name(DpTableCache.class, "misses"));
+        this.extensions = metrics.meter(name(DpTableCache.class, "extensions"));
+        this.evictions = metrics.meter(name(DpTableCache.class, "evictions"));
+        metrics.register(name(DpTableCache.class, "tables"), (Gauge<Integer>) this::size);
+        metrics.register(name(DpTableCache.class, "entries"), (Gauge<Long>) this::entries);
+    }
+
+    /**
+     * Solves {@code amount} with the cached table for the given denomination set, creating or extending it as needed.
+     *
+     * @param sortedCoins distinct denominations in cents, sorted ascending
+     * @return coins used per denomination, aligned with {@code sortedCoins}, or null if the amount cannot be formed
+     */
+    public int[] counts(int amount, int[] sortedCoins) {
+        DpTable table = tableFor(sortedCoins);
+        if (amount <= table.limit()) {
+            hits.mark();
+            return table.counts(amount);
+        }
+
+        extensions.mark();
+        int[] counts = table.counts(amount);
+        trim();
+        return counts;
+    }
+
+    /**
+     * Fewest coins for every amount up to {@code amount}, from the cached table for the denomination set, created
+     * or extended as needed (see {@link DpTable#fewest}).
+     *
+     * @param sortedCoins distinct denominations in cents, sorted ascending
+     */
+    int[] fewest(int amount, int[] sortedCoins) {
+        DpTable table = tableFor(sortedCoins);
+        if (amount <= table.limit()) {
+            hits.mark();
+            return table.fewest(amount);
+        }
+
+        extensions.mark();
+        int[] fewest = table.fewest(amount);
+        trim();
+        return fewest;
+    }
+
+    /**
+     * Lock-free, and does not count as a use of the table, so probing before every solve neither serializes
+     * requests on the cache nor changes which table is evicted next.
+     *
+     * @param sortedCoins distinct denominations in cents, sorted ascending
+     * @return the largest amount the cached table for this set already answers, or -1 if none is cached
+     */
+    public int limit(int[] sortedCoins) {
+        DpTable table = index.get(new CoinSetKey(sortedCoins));
+        return table == null ? -1 : table.limit();
+    }
+
+    public synchronized int size() {
+        return tables.size();
+    }
+
+    public synchronized long entries() {
+        long total = 0;
+        for (DpTable table : tables.values()) {
+            total += table.capacity();
+        }
+        return total;
+    }
+
+    private synchronized DpTable tableFor(int[] sortedCoins) {
+        CoinSetKey key = new CoinSetKey(sortedCoins);
+        DpTable table = tables.get(key);
+        if (table == null) {
+            misses.mark();
+            table = new DpTable(sortedCoins, engine);
+            tables.put(key, table);
+            index.put(key, table);
+            trim();
+        }
+        return table;
+    }
+
+    /**
+     * Evicts least-recently-used tables until both bounds hold again. The most recently used table
+     * is always kept, even if on its own it exceeds {@code maxEntries}.
+     */
+    private synchronized void trim() {
+        long total = entries();
+        Iterator<Map.Entry<CoinSetKey, DpTable>> it = tables.entrySet().iterator();
+        while (tables.size() > 1 && (tables.size() > maxTables || total > maxEntries) && it.hasNext()) {
+            Map.Entry<CoinSetKey, DpTable> eldest = it.next();
+            total -= eldest.getValue().capacity();
+            it.remove();
+            index.remove(eldest.getKey());
+            evictions.mark();
+        }
+    }
+}
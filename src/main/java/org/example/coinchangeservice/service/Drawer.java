@@ -0,0 +1,222 @@
+package org.example.coinchangeservice.service;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One cash drawer: an inventory of coins per denomination, shared by every checkout lane using the drawer.
+ *
+ * The inventory is an immutable snapshot behind an {@link AtomicReference}. Every update is optimistic: read the
+ * snapshot, compute the new one, compare-and-set, and start over if another lane got there first. Lanes never
+ * block each other, and drawers never share any lock.
+ *
+ * With a journal, the new snapshot must be written before anyone can see it, so the check and publish step (not
+ * the computation) runs under the drawer's own lock, with the journal append in between. A failed append then
+ * leaves the drawer as it was.
+ */
+public final class Drawer {
+
+    private final String id;
+    private final DrawerRegistry registry;
+    private final AtomicReference<Inventory> state;
+
+    Drawer(String id, Inventory initial, DrawerRegistry registry) {
+        this.id = id;
+        this.registry = registry;
+        this.state = new AtomicReference<>(initial);
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public Inventory inventory() {
+        return state.get();
+    }
+
+    /**
+     * Takes change for {@code amountCents} out of the drawer, using as few coins as the inventory allows.
+     *
+     * @param allowedMask {@link Denominations} mask of the denominations that may be handed out, in the
+     *                    currency of the registry's service
+     * @return the coins handed out and the inventory left, or null if the drawer cannot make the amount
+     * @throws AmountTooLargeException if the inventory leaves a bounded DP too large to run
+     */
+    public Dispensed dispense(long amountCents, int allowedMask) {
+        if (amountCents == 0) {
+            // Nothing handed out, so nothing to commit or journal
+            Inventory current = state.get();
+            return new Dispensed(new int[current.counts.length], current);
+        }
+        CoinChangeService service = registry.service();
+        while (true) {
+            Inventory current = state.get();
+            int mask = current.stockedMask() & allowedMask;
+            if (mask == 0) {
+                return null;
+            }
+            int[] used = service.solveBounded(amountCents, mask, current.available(mask));
+            if (used == null) {
+                return null;
+            }
+
+            int[] coins = new int[current.counts.length];
+            int[] next = current.counts.clone();
+            for (int bit = 0, j = 0; bit < coins.length; bit++) {
+                if ((mask & 1 << bit) != 0) {
+                    coins[bit] = used[j++];
+                    next[bit] -= coins[bit];
+                }
+            }
+            Inventory updated = new Inventory(current.version + 1, next);
+            if (commit(current, updated)) {
+                return new Dispensed(coins, updated);
+            }
+            registry.conflict();
+        }
+    }
+
+    /**
+     * Estimates the DP work of {@link #dispense} against the current inventory, so the caller can decide where to
+     * run it (see {@link CoinChangeService#boundedDpWork}).
+     */
+    public long dispenseWork(long amountCents, int allowedMask) {
+        Inventory current = state.get();
+        int mask = current.stockedMask() & allowedMask;
+        if (amountCents == 0 || mask == 0) {
+            return 0;
+        }
+        return registry.service().boundedDpWork(amountCents, mask, current.available(mask));
+    }
+
+    /**
+     * Adds coins to the drawer.
+     *
+     * @param coins coins per {@link Denominations} bit
+     * @return the inventory after the deposit
+     */
+    public Inventory deposit(int[] coins) {
+        while (true) {
+            Inventory current = state.get();
+            int[] next = current.counts.clone();
+            for (int bit = 0; bit < next.length; bit++) {
+                next[bit] = Math.addExact(next[bit], coins[bit]);
+            }
+            Inventory updated = new Inventory(current.version + 1, next);
+            if (commit(current, updated)) {
+                return updated;
+            }
+            registry.conflict();
+        }
+    }
+
+    /**
+     * Replaces the whole inventory, e.g. after a count of the drawer.
+     *
+     * @param coins coins per {@link Denominations} bit
+     * @return the new inventory
+     */
+    public Inventory replace(int[] coins) {
+        while (true) {
+            Inventory current = state.get();
+            Inventory updated = new Inventory(current.version + 1, coins.clone());
+            if (commit(current, updated)) {
+                return updated;
+            }
+            registry.conflict();
+        }
+    }
+
+    /**
+     * Publishes {@code updated} if the drawer still holds {@code current}.
+     *
+     * @return false if another update got there first
+     * @throws java.io.UncheckedIOException if the journal cannot be written; nothing is published then
+     */
+    private boolean commit(Inventory current, Inventory updated) {
+        if (!registry.journaled()) {
+            return state.compareAndSet(current, updated);
+        }
+        synchronized (this) {
+            if (state.get() != current) {
+                return false;
+            }
+            registry.journal(id, updated);
+            state.set(updated);
+            return true;
+        }
+    }
+
+    /**
+     * Immutable inventory snapshot: coins per {@link Denominations} bit, and a version incremented by every update.
+     */
+    public static final class Inventory {
+        final long version;
+        final int[] counts;
+
+        Inventory(long version, int[] counts) {
+            this.version = version;
+            this.counts = counts;
+        }
+
+        static Inventory empty(int size) {
+            return new Inventory(0, new int[size]);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /** @return coins held of the denomination at {@code bit} */
+        public int count(int bit) {
+            return counts[bit];
+        }
+
+        /** @return mask of the denominations the drawer holds at least one coin of */
+        int stockedMask() {
+            int mask = 0;
+            for (int bit = 0; bit < counts.length; bit++) {
+                if (counts[bit] > 0) {
+                    mask |= 1 << bit;
+                }
+            }
+            return mask;
+        }
+
+        /** @return coins held per denomination of {@code mask}, ascending */
+        int[] available(int mask) {
+            int[] available = new int[Integer.bitCount(mask)];
+            for (int bit = 0, j = 0; bit < counts.length; bit++) {
+                if ((mask & 1 << bit) != 0) {
+                    available[j++] = counts[bit];
+                }
+            }
+            return available;
+        }
+
+        @Override
+        public String toString() {
+            return "v" + version + " " + Arrays.toString(counts);
+        }
+    }
+
+    /** Result of {@link #dispense}: coins handed out per {@link Denominations} bit, and what is left. */
+    public static final class Dispensed {
+        private final int[] coins;
+        private final Inventory remaining;
+
+        Dispensed(int[] coins, Inventory remaining) {
+            this.coins = coins;
+            this.remaining = remaining;
+        }
+
+        /** @return coins of the denomination at {@code bit} handed out */
+        public int count(int bit) {
+            return coins[bit];
+        }
+
+        public Inventory remaining() {
+            return remaining;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.coinchangeservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Append-only local journal of drawer inventories, for recovery after a restart.
+ *
+ * Each line is a full inventory, {@code <drawer id> <version> <count per denomination bit>...}, so replaying only
+ * needs the highest version per drawer. A drawer appends an inventory before it publishes it (see {@link Drawer}),
+ * so lines of one drawer arrive in version order, and a failed append leaves nothing to undo. Once
+ * {@code compactAfter} lines have been appended, the file is rewritten with the last line of each drawer only
+ * (a snapshot) and the journal starts over.
+ *
+ * Appends are group-committed: lines of concurrent appenders, from any drawers, are queued, and whichever appender
+ * gets to the file first writes and flushes all of them at once, so the others only wait for that flush. Lines
+ * are flushed to the operating system, which survives a crash of the process but not of the machine. A torn last
+ * line (the process died mid-write) is dropped with a warning when the journal is opened; an unreadable line
+ * anywhere else means the file is corrupt, and opening it fails.
+ */
+public final class DrawerJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DrawerJournal.class);
+
+    private final Path file;
+    private final int compactAfter;
+    private final Map<String, Drawer.Inventory> restored;
+
+    /** Lines waiting to be written; guarded by {@code this}. */
+    private Batch pending = new Batch();
+
+    /** Held while writing the file; guards the fields below. */
+    private final Object fileLock = new Object();
+    private final Map<String, Drawer.Inventory> written;
+    private Writer writer;
+    private int appended;
+
+    private DrawerJournal(Path file, int compactAfter, Map<String, Drawer.Inventory> restored) throws IOException {
+        this.file = file;
+        this.compactAfter = compactAfter;
+        this.restored = restored;
+        this.written = new HashMap<>(restored);
+        this.writer = openWriter(file);
+    }
+
+    /** Lines queued together and written with one flush; done once written or failed. */
+    private static final class Batch {
+        final StringBuilder lines = new StringBuilder();
+        final Map<String, Drawer.Inventory> inventories = new HashMap<>();
+        int size;
+        boolean done;
+        IOException error;
+    }
+
+    /**
+     * Opens the journal, reading back the inventories it holds; the file is created if it does not exist.
+     *
+     * @param compactAfter lines appended before the file is rewritten as a snapshot
+     */
+    public static DrawerJournal open(Path file, int compactAfter) throws IOException {
+        if (compactAfter < 1) {
+            throw new IllegalArgumentException("compactAfter must be positive");
+        }
+        Map<String, Drawer.Inventory> restored = new HashMap<>();
+        if (Files.exists(file)) {
+            // Compaction keeps the file small enough to read at once. Lines are ASCII; read as ISO-8859-1, any
+            // bytes a crash left behind still decode, one char per byte, so offsets are file positions
+            String journal = Files.readString(file, StandardCharsets.ISO_8859_1);
+            int start = 0;
+            for (int lineNumber = 1; start < journal.length(); lineNumber++) {
+                int end = journal.indexOf('\n', start);
+                String id = null;
+                Drawer.Inventory inventory = null;
+                if (end >= 0) {
+                    String[] fields = journal.substring(start, end).split(" ");
+                    id = fields[0];
+                    inventory = parse(fields);
+                }
+                if (inventory == null) {
+                    if (end >= 0 && end < journal.length() - 1) {
+                        throw new IOException("Corrupt drawer journal " + file + " at line " + lineNumber);
+                    }
+                    LOGGER.warn("Dropping incomplete last line {} of drawer journal {}", lineNumber, file);
+                    break;
+                }
+                restored.merge(id, inventory, (a, b) -> a.version >= b.version ? a : b);
+                start = end + 1;
+            }
+            if (start < journal.length()) {
+                // Drop the torn line, so the next append starts on a line of its own
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(start);
+                }
+            }
+        }
+        return new DrawerJournal(file, compactAfter, restored);
+    }
+
+    /** Inventories read back when the journal was opened, by drawer id. */
+    Map<String, Drawer.Inventory> restored() {
+        return restored;
+    }
+
+    /**
+     * Writes the line and returns once it is flushed, possibly together with lines of concurrent appenders.
+     *
+     * @return true if the journal has reached {@code compactAfter} lines and the caller should {@link #compact}
+     * @throws IOException if the line could not be written; the caller must not publish the inventory
+     */
+    boolean append(String id, Drawer.Inventory inventory) throws IOException {
+        Batch batch;
+        synchronized (this) {
+            batch = pending;
+            batch.lines.append(line(id, inventory));
+            batch.inventories.put(id, inventory);
+            batch.size++;
+        }
+        synchronized (fileLock) {
+            if (!batch.done) {
+                // Batches are only swapped out here, so the one this line joined is still the pending one
+                synchronized (this) {
+                    pending = new Batch();
+                }
+                try {
+                    writer.write(batch.lines.toString());
+                    writer.flush();
+                    written.putAll(batch.inventories);
+                    appended += batch.size;
+                } catch (IOException e) {
+                    batch.error = e;
+                }
+                batch.done = true;
+            }
+            if (batch.error != null) {
+                throw new IOException("Cannot append to drawer journal " + file, batch.error);
+            }
+            return appended >= compactAfter;
+        }
+    }
+
+    /**
+     * Replaces the file with the last line written per drawer. Written to a temporary file first and moved into
+     * place, so a crash leaves either the old journal or the new snapshot. Appends wait meanwhile.
+     */
+    void compact() throws IOException {
+        synchronized (fileLock) {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter snapshot = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Drawer.Inventory> entry : written.entrySet()) {
+                    snapshot.write(line(entry.getKey(), entry.getValue()));
+                }
+            }
+            writer.close();
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                appended = 0;
+            } finally {
+                // Either way later lines go to whichever file is in place
+                writer = openWriter(file);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (fileLock) {
+            writer.close();
+        }
+    }
+
+    private static Writer openWriter(Path file) throws IOException {
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @param fields a line split at spaces
+     * @return the inventory on the line, or null if it is not a well-formed line
+     */
+    private static Drawer.Inventory parse(String[] fields) {
+        if (fields.length < 3 || fields[0].isEmpty()) {
+            return null;
+        }
+        try {
+            int[] counts = new int[fields.length - 2];
+            for (int bit = 0; bit < counts.length; bit++) {
+                counts[bit] = Integer.parseInt(fields[bit + 2]);
+                if (counts[bit] < 0) {
+                    return null;
+                }
+            }
+            return new Drawer.Inventory(Long.parseLong(fields[1]), counts);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String line(String id, Drawer.Inventory inventory) {
+        StringBuilder line = new StringBuilder(id).append(' ').append(inventory.version);
+        for (int count : inventory.counts) {
+            line.append(' ').append(count);
+        }
+        return line.append('\n').toString();
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.coinchangeservice.service;
+
+import com.codahale.metrics.Meter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.codahale.metrics.MetricRegistry.name;
+
+/**
+ * The cash drawers owned by the service, by id. Drawers are created on first use and never removed; each one
+ * updates its own inventory without any lock shared between drawers (see {@link Drawer}), so lanes on different
+ * drawers never contend.
+ *
+ * With a {@link DrawerJournal}, every inventory is appended to a local file before it is published, and the
+ * drawers are restored from it when the registry is created.
+ */
+public final class DrawerRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DrawerRegistry.class);
+
+    private final ConcurrentHashMap<String, Drawer> drawers = new ConcurrentHashMap<>();
+    private final CoinChangeService service;
+    private final DrawerJournal journal;
+    private final Meter conflicts;
+
+    public DrawerRegistry(CoinChangeService service) {
+        this(service, null);
+    }
+
+    /**
+     * @param journal journal to restore the drawers from and append updates to, or null to keep them in memory only
+     */
+    public DrawerRegistry(CoinChangeService service, DrawerJournal journal) {
+        this.service = service;
+        this.journal = journal;
+        this.conflicts = service.metrics().registry().meter(name(DrawerRegistry.class, "conflicts"));
+        if (journal != null) {
+            journal.restored().forEach((id, inventory) -> {
+                if (inventory.counts.length != service.denominations().size()) {
+                    throw new IllegalStateException("Drawer " + id + " in the journal has "
+                            + inventory.counts.length + " denominations, the currency has "
+                            + service.denominations().size());
+                }
+                drawers.put(id, new Drawer(id, inventory, this));
+            });
+        }
+    }
+
+    /** @return the drawer with this id, or null if it was never stocked */
+    public Drawer drawer(String id) {
+        return drawers.get(id);
+    }
+
+    /** @return the drawer with this id, created empty if needed */
+    public Drawer getOrCreate(String id) {
+        return drawers.computeIfAbsent(id, key -> new Drawer(key, Drawer.Inventory.empty(service.denominations().size()), this));
+    }
+
+    CoinChangeService service() {
+        return service;
+    }
+
+    /** A compare-and-set lost to a concurrent update of the same drawer and was retried. */
+    void conflict() {
+        conflicts.mark();
+    }
+
+    boolean journaled() {
+        return journal != null;
+    }
+
+    /**
+     * Appends an inventory about to be published.
+     *
+     * @throws UncheckedIOException if it could not be written, in which case it must not be published
+     */
+    void journal(String id, Drawer.Inventory inventory) {
+        boolean compact;
+        try {
+            compact = journal.append(id, inventory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write drawer journal", e);
+        }
+        if (compact) {
+            try {
+                journal.compact();
+            } catch (IOException e) {
+                // The line itself is written, so the update stands; the next append tries again
+                LOGGER.warn("Cannot compact drawer journal", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.example.coinchangeservice.service;
+
+import java.math.RoundingMode;
+
+/**
+ * Parses decimal amounts written as text ("12.34", "-0.5", "1e3", "0.005") straight into {@code long} minor
+ * units at a given scale (cents at scale 2), without going through {@code double} or {@code BigDecimal} and
+ * without allocating. The input is the exact decimal the client wrote, so 0.1 is 10 cents and 1.005 rounds to
+ * 101 (a double would give 100).
+ *
+ * Only three rounding modes are needed: {@link RoundingMode#HALF_UP} (away from zero) for amounts,
+ * {@link RoundingMode#UNNECESSARY} for denominations, which must be whole minor units, and
+ * {@link RoundingMode#DOWN} to keep an amount at a finer scale until its currency, and so its scale, is known.
+ * Rounding half up from a truncated finer scale gives the same result as rounding the original text.
+ */
+public final class MinorUnits {
+
+    /** Returned for text that is not a decimal number, or that is not exact under {@code UNNECESSARY}. */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /** Limit on the exponent's magnitude; anything larger already under- or overflows a long. */
+    private static final int MAX_EXPONENT = 1000;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10_000, 100_000, 1_000_000};
+
+    private MinorUnits() {
+    }
+
+    /**
+     * @return 10^n, for n up to 6
+     */
+    public static long pow10(int n) {
+        return POWERS_OF_TEN[n];
+    }
+
+    /**
+     * @param scale decimal places of the result (2 for cents)
+     * @param mode  {@code HALF_UP}, {@code DOWN} or {@code UNNECESSARY}
+     * @return the amount in minor units; amounts beyond the range of a long saturate to ±{@link Long#MAX_VALUE};
+     *   {@link #INVALID} if the text is not a number, or is not exact under {@code UNNECESSARY}
+     */
+    public static long parse(char[] text, int offset, int length, int scale, RoundingMode mode) {
+        checkMode(mode);
+        int end = offset + length;
+        int i = offset;
+        boolean negative = false;
+        if (i < end && (text[i] == '-' || text[i] == '+')) {
+            negative = text[i++] == '-';
+        }
+
+        // First pass: validate and find the shape (digit count, digits before the point, exponent)
+        int digitsStart = i;
+        int digits = 0;
+        int integerDigits = -1;
+        for (; i < end; i++) {
+            char c = text[i];
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && integerDigits < 0) {
+                integerDigits = digits;
+            } else {
+                break;
+            }
+        }
+        int digitsEnd = i;
+        if (digits == 0) {
+            return INVALID;
+        }
+        if (integerDigits < 0) {
+            integerDigits = digits;
+        }
+        int exponent = 0;
+        if (i < end && (text[i] == 'e' || text[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (text[i] == '-' || text[i] == '+')) {
+                negativeExponent = text[i++] == '-';
+            }
+            if (i == end) {
+                return INVALID;
+            }
+            for (; i < end; i++) {
+                char c = text[i];
+                if (c < '0' || c > '9') {
+                    return INVALID;
+                }
+                exponent = Math.min(MAX_EXPONENT, exponent * 10 + (c - '0'));
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != end) {
+            return INVALID;
+        }
+
+        // Second pass: the first `kept` digits make up the result, the next one rounds, the rest only matter
+        // for exactness
+        int kept = integerDigits + exponent + scale;
+        long units = 0;
+        int roundingDigit = 0;
+        boolean remainder = false;
+        boolean saturated = false;
+        for (int k = 0, j = digitsStart; j < digitsEnd; j++) {
+            char c = text[j];
+            if (c == '.') {
+                continue;
+            }
+            int digit = c - '0';
+            if (k < kept) {
+                if (!saturated) {
+                    if (units > (Long.MAX_VALUE - digit) / 10) {
+                        saturated = true;
+                    } else {
+                        units = units * 10 + digit;
+                    }
+                }
+            } else if (k == kept) {
+                roundingDigit = digit;
+            } else if (digit != 0) {
+                remainder = true;
+            }
+            k++;
+        }
+        for (int k = digits; k < kept && units != 0 && !saturated; k++) {
+            if (units > Long.MAX_VALUE / 10) {
+                saturated = true;
+            } else {
+                units *= 10;
+            }
+        }
+
+        if (mode == RoundingMode.UNNECESSARY && (roundingDigit != 0 || remainder)) {
+            return INVALID;
+        }
+        if (saturated) {
+            units = Long.MAX_VALUE;
+        } else if (mode == RoundingMode.HALF_UP && roundingDigit >= 5 && units < Long.MAX_VALUE) {
+            units++;
+        }
+        return negative ? -units : units;
+    }
+
+    /** Convenience for code and tests; allocates a copy of the characters. */
+    public static long parse(CharSequence text, int scale, RoundingMode mode) {
+        return parse(text.toString().toCharArray(), 0, text.length(), scale, mode);
+    }
+
+    /**
+     * Converts minor units to a coarser scale, e.g. ten-thousandths to cents.
+     *
+     * @param mode {@code HALF_UP}, {@code DOWN} or {@code UNNECESSARY}
+     * @return the value at {@code toScale}; saturated values stay saturated; {@link #INVALID} for invalid input,
+     *   or if the value is not exact under {@code UNNECESSARY}
+     */
+    public static long rescale(long units, int fromScale, int toScale, RoundingMode mode) {
+        checkMode(mode);
+        if (toScale > fromScale) {
+            throw new IllegalArgumentException("Only coarser scales are supported");
+        }
+        if (units == INVALID || Math.abs(units) == Long.MAX_VALUE) {
+            return units;
+        }
+        long magnitude = Math.abs(units);
+        long divisor = pow10(fromScale - toScale);
+        long result = magnitude / divisor;
+        long dropped = magnitude % divisor;
+        if (mode == RoundingMode.UNNECESSARY && dropped != 0) {
+            return INVALID;
+        }
+        if (mode == RoundingMode.HALF_UP && dropped * 2 >= divisor) {
+            result++;
+        }
+        return units < 0 ? -result : result;
+    }
+
+    private static void checkMode(RoundingMode mode) {
+        if (mode != RoundingMode.HALF_UP && mode != RoundingMode.DOWN && mode != RoundingMode.UNNECESSARY) {
+            throw new IllegalArgumentException("Unsupported rounding mode: " + mode);
+        }
+    }
+}
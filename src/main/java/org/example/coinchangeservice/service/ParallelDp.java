@@ -0,0 +1,160 @@
+package org.example.coinchangeservice.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * DP fill engine shared by every DP table in the service. Ranges below the threshold are filled by the classic
+ * sequential loop; larger ones are filled in parallel on a {@link ForkJoinPool}.
+ *
+ * The parallel fill processes the DP coin by coin (dp[i] = min(dp[i], dp[i - c] + 1) for every amount, one
+ * coin at a time) over blocks of amounts. Stage (coin j, block b) only needs stage (j - 1, b) and stage (j, b - 1),
+ * so all stages on one anti-diagonal j + b run in parallel (a wavefront). The winning coin per amount is then
+ * derived from the final counts as the first coin j with dp[i - c_j] + 1 == dp[i], which is exactly what the
+ * sequential loop records, so both engines produce identical tables.
+ */
+public final class ParallelDp {
+
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /** Fills everything on the calling thread. */
+    public static final ParallelDp SEQUENTIAL = new ParallelDp(null, Integer.MAX_VALUE);
+
+    /** Smallest block of amounts handed to one task. */
+    private static final int MIN_BLOCK = 16_384;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * @param pool      pool running the parallel fill
+     * @param threshold ranges of fewer amounts than this are filled sequentially
+     */
+    public ParallelDp(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Fills {@code dp} and {@code coinUsed} for the amounts {@code from + 1 .. to}. Entries {@code 0 .. from} must
+     * already be final (in particular dp[0] = 0). Unreachable amounts get {@link #UNREACHABLE}.
+     *
+     * @param coins distinct denominations in cents, ascending
+     */
+    void fill(int[] coins, int[] dp, byte[] coinUsed, int from, int to) {
+        if (to <= from) {
+            return;
+        }
+        if (pool == null || to - from < threshold) {
+            fillSequential(coins, dp, coinUsed, from + 1, to);
+        } else {
+            pool.invoke(new Wavefront(coins, dp, coinUsed, from, to, pool.getParallelism()));
+        }
+    }
+
+    private static void fillSequential(int[] coins, int[] dp, byte[] coinUsed, int lo, int hi) {
+        for (int i = lo; i <= hi; i++) {
+            int best = UNREACHABLE;
+            int used = 0;
+            for (int j = 0; j < coins.length && coins[j] <= i; j++) {
+                int prev = dp[i - coins[j]];
+                if (prev != UNREACHABLE && prev + 1 < best) {
+                    best = prev + 1;
+                    used = j;
+                }
+            }
+            dp[i] = best;
+            coinUsed[i] = (byte) used;
+        }
+    }
+
+    private static final class Wavefront extends RecursiveAction {
+        private final int[] coins;
+        private final int[] dp;
+        private final byte[] coinUsed;
+        private final int from;
+        private final int to;
+        private final int block;
+        private final int blocks;
+
+        Wavefront(int[] coins, int[] dp, byte[] coinUsed, int from, int to, int parallelism) {
+            this.coins = coins;
+            this.dp = dp;
+            this.coinUsed = coinUsed;
+            this.from = from;
+            this.to = to;
+            long length = to - from;
+            this.block = (int) Math.max(MIN_BLOCK, (length + 8L * parallelism - 1) / (8L * parallelism));
+            this.blocks = (int) ((length + block - 1) / block);
+        }
+
+        @Override
+        protected void compute() {
+            for (int b = 0; b < blocks; b++) {
+                Arrays.fill(dp, lo(b), hi(b) + 1, UNREACHABLE);
+            }
+
+            // Stages on one anti-diagonal are independent of each other. A stage may read values in the previous
+            // block that a later coin has already lowered; those are still achievable counts no smaller than the
+            // optimum, so the final values are unaffected (int reads and writes are atomic).
+            int n = coins.length;
+            for (int diagonal = 0; diagonal < n + blocks - 1; diagonal++) {
+                List<ForkJoinTask<?>> stages = new ArrayList<>();
+                for (int j = Math.max(0, diagonal - blocks + 1); j <= Math.min(n - 1, diagonal); j++) {
+                    int coin = coins[j];
+                    int b = diagonal - j;
+                    stages.add(ForkJoinTask.adapt(() -> relax(coin, lo(b), hi(b))));
+                }
+                invokeAll(stages);
+            }
+
+            List<ForkJoinTask<?>> derive = new ArrayList<>(blocks);
+            for (int b = 0; b < blocks; b++) {
+                int lo = lo(b);
+                int hi = hi(b);
+                derive.add(ForkJoinTask.adapt(() -> deriveCoinUsed(lo, hi)));
+            }
+            invokeAll(derive);
+        }
+
+        private int lo(int b) {
+            return from + 1 + b * block;
+        }
+
+        private int hi(int b) {
+            return (int) Math.min(to, (long) from + (long) (b + 1) * block);
+        }
+
+        private void relax(int coin, int lo, int hi) {
+            for (int i = Math.max(lo, coin); i <= hi; i++) {
+                int prev = dp[i - coin];
+                if (prev != UNREACHABLE && prev + 1 < dp[i]) {
+                    dp[i] = prev + 1;
+                }
+            }
+        }
+
+        private void deriveCoinUsed(int lo, int hi) {
+            for (int i = lo; i <= hi; i++) {
+                int used = 0;
+                int best = dp[i];
+                if (best != UNREACHABLE) {
+                    for (int j = 0; j < coins.length && coins[j] <= i; j++) {
+                        if (dp[i - coins[j]] == best - 1) {
+                            used = j;
+                            break;
+                        }
+                    }
+                }
+                coinUsed[i] = (byte) used;
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.example.coinchangeservice.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Memory-mapped file of precomputed DP answers for a fixed list of denomination sets.
+ *
+ * For each set the file stores one byte per amount (in cents) up to the set's limit: the index of the last coin
+ * of an optimal solution, or {@code 0xFF} if the amount cannot be formed. Answers are read by backtracking through
+ * the mapped bytes, so nothing is computed and nothing lives on the heap. The file is reused across restarts
+ * as long as it was built for the same sets and limits; otherwise it is rebuilt. A file that is not a table file
+ * of this version, or whose header or data do not add up, fails the open instead of being mapped or overwritten.
+ *
+ * Layout: magic, version, set count, then per set (coin count, coins, limit, data offset), then the data.
+ */
+final class PrecomputedTables {
+
+    private static final int MAGIC = 0x43435442; // "CCTB"
+    private static final int VERSION = 1;
+    private static final int UNREACHABLE = 0xFF;
+
+    /** Magic, version and set count. */
+    private static final int HEADER_SIZE = 12;
+
+    private PrecomputedTables() {
+    }
+
+    /**
+     * Opens {@code file} if it matches the requested sets and limits, otherwise builds and writes it first.
+     *
+     * @param sortedSets distinct denominations in cents per set, ascending
+     * @param limits     largest amount (in cents) to store per set
+     * @return one table per requested set, in the same order
+     */
+    static List<Table> open(Path file, List<int[]> sortedSets, int[] limits, ParallelDp engine)
+            throws IOException {
+        if (Files.exists(file)) {
+            List<Table> tables = map(file, sortedSets, limits);
+            if (tables != null) {
+                return tables;
+            }
+        }
+        build(file, sortedSets, limits, engine);
+        List<Table> tables = map(file, sortedSets, limits);
+        if (tables == null) {
+            throw new IOException("Precomputed table file could not be read back: " + file);
+        }
+        return tables;
+    }
+
+    /**
+     * @return the tables, or null if the file was built for different sets or limits
+     * @throws IOException if the file is not a table file of this version, or its header or data do not add up
+     */
+    private static List<Table> map(Path file, List<int[]> sortedSets, int[] limits) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.limit() < HEADER_SIZE) {
+            throw corrupt(file, buffer.limit() + " bytes, shorter than the " + HEADER_SIZE + "-byte header");
+        }
+        int magic = buffer.getInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a precomputed table file: " + file + " (magic "
+                    + Integer.toHexString(magic) + ", expected " + Integer.toHexString(MAGIC) + ")");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Precomputed table file " + file + " has version " + version + ", expected "
+                    + VERSION + "; delete it to rebuild it");
+        }
+        int setCount = buffer.getInt();
+        if (setCount < 0) {
+            throw corrupt(file, "negative set count " + setCount);
+        }
+        if (setCount != sortedSets.size()) {
+            return null;
+        }
+        List<Table> tables = new ArrayList<>(sortedSets.size());
+        for (int s = 0; s < sortedSets.size(); s++) {
+            if (buffer.remaining() < 4) {
+                throw corrupt(file, "header of set " + s + " is truncated");
+            }
+            int coinCount = buffer.getInt();
+            if (coinCount < 1 || coinCount > Denominations.MAX_SIZE) {
+                throw corrupt(file, "set " + s + " has " + coinCount + " coins");
+            }
+            if (buffer.remaining() < 4L * coinCount + 4 + 8) {
+                throw corrupt(file, "header of set " + s + " is truncated");
+            }
+            int[] coins = new int[coinCount];
+            for (int i = 0; i < coins.length; i++) coins[i] = buffer.getInt();
+            int limit = buffer.getInt();
+            long offset = buffer.getLong();
+            if (limit < 0 || offset < 0 || offset + limit + 1 > buffer.limit()) {
+                throw corrupt(file, "set " + s + " claims " + (limit + 1L) + " bytes at offset " + offset
+                        + ", past the end of the " + buffer.limit() + "-byte file");
+            }
+            if (!Arrays.equals(coins, sortedSets.get(s)) || limit != limits[s]) {
+                return null;
+            }
+            ByteBuffer data = buffer.duplicate().position((int) offset).limit((int) offset + limit + 1).slice();
+            // Every answer must name a coin of the set that fits the amount, or reading it back could not end
+            for (int amount = 1; amount <= limit; amount++) {
+                int coin = data.get(amount) & 0xFF;
+                if (coin != UNREACHABLE && (coin >= coins.length || coins[coin] > amount)) {
+                    throw corrupt(file, "set " + s + " has an invalid answer for amount " + amount);
+                }
+            }
+            tables.add(new Table(coins, data, limit));
+        }
+        return tables;
+    }
+
+    private static IOException corrupt(Path file, String detail) {
+        return new IOException("Corrupt precomputed table file " + file + ": " + detail);
+    }
+
+    private static void build(Path file, List<int[]> sortedSets, int[] limits, ParallelDp engine)
+            throws IOException {
+        int headerSize = HEADER_SIZE;
+        for (int[] coins : sortedSets) headerSize += 4 + 4 * coins.length + 4 + 8;
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(headerSize);
+            header.putInt(MAGIC).putInt(VERSION).putInt(sortedSets.size());
+            long offset = headerSize;
+            for (int s = 0; s < sortedSets.size(); s++) {
+                int[] coins = sortedSets.get(s);
+                header.putInt(coins.length);
+                for (int c : coins) header.putInt(c);
+                header.putInt(limits[s]).putLong(offset);
+                offset += limits[s] + 1L;
+            }
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+
+            for (int s = 0; s < sortedSets.size(); s++) {
+                ByteBuffer data = ByteBuffer.wrap(coinUsed(sortedSets.get(s), limits[s], engine));
+                while (data.hasRemaining()) channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Fills the DP up to {@code limit} and returns the last-coin index per amount. */
+    private static byte[] coinUsed(int[] coins, int limit, ParallelDp engine) {
+        int[] dp = new int[limit + 1];
+        byte[] used = new byte[limit + 1];
+        engine.fill(coins, dp, used, 0, limit);
+        for (int i = 1; i <= limit; i++) {
+            if (dp[i] == ParallelDp.UNREACHABLE) {
+                used[i] = (byte) UNREACHABLE;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Read-only view of one denomination set's answers.
+     */
+    static final class Table {
+        private final int[] coins;
+        private final ByteBuffer data;   // absolute reads only, so the buffer can be shared across threads
+        private final int limit;
+
+        Table(int[] coins, ByteBuffer data, int limit) {
+            this.coins = coins;
+            this.data = data;
+            this.limit = limit;
+        }
+
+        int limit() {
+            return limit;
+        }
+
+        /**
+         * @param amount in cents, at most {@link #limit()}
+         * @return coins used per denomination, aligned with the set's sorted coins, or null if the amount
+         *   cannot be formed
+         */
+        int[] counts(int amount) {
+            if (amount > 0 && (data.get(amount) & 0xFF) == UNREACHABLE) {
+                return null;
+            }
+            int[] counts = new int[coins.length];
+            int remaining = amount;
+            while (remaining > 0) {
+                int cIndex = data.get(remaining) & 0xFF;
+                counts[cIndex]++;
+                remaining -= coins[cIndex];
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.coinchangeservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer plus a small result cache for DP answers, keyed by (amount in cents, denomination mask).
+ *
+ * Concurrent identical requests share one in-flight computation: the first caller computes, the others wait for
+ * its result. Finished results stay in a bounded cache (size and time-to-live eviction), so a burst of identical
+ * requests slightly apart in time is answered without recomputing either. Results are shared between callers
+ * and must be treated as read-only.
+ */
+public final class ResultCache {
+
+    /** Cached marker for "no solution"; the cache cannot hold nulls. */
+    private static final int[] NO_SOLUTION = new int[0];
+
+    private final ConcurrentHashMap<Long, CompletableFuture<int[]>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<Long, int[]> results;
+
+    /**
+     * @param maxSize maximum number of cached results; 0 keeps nothing and only coalesces concurrent requests
+     * @param ttl     how long a result stays cached after it was computed
+     */
+    public ResultCache(long maxSize, Duration ttl) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    static long key(long amountCents, int denominationMask) {
+        return amountCents << Denominations.MAX_SIZE | denominationMask;
+    }
+
+    boolean contains(long key) {
+        return results.getIfPresent(key) != null;
+    }
+
+    /**
+     * @return the cached or shared result for {@code key}, running {@code compute} only if no other caller
+     *   is already computing it
+     */
+    int[] get(long key, Supplier<int[]> compute, CoinChangeMetrics metrics) {
+        int[] cached = results.getIfPresent(key);
+        if (cached != null) {
+            metrics.resultCacheHit();
+            return unwrap(cached);
+        }
+
+        CompletableFuture<int[]> mine = new CompletableFuture<>();
+        CompletableFuture<int[]> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            metrics.coalesced();
+            try {
+                return unwrap(running.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+
+        try {
+            // The previous owner may have published the result between the lookup above and putIfAbsent
+            cached = results.getIfPresent(key);
+            if (cached != null) {
+                metrics.resultCacheHit();
+            } else {
+                int[] counts = compute.get();
+                cached = counts == null ? NO_SOLUTION : counts;
+                results.put(key, cached);
+            }
+            mine.complete(cached);
+            return unwrap(cached);
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static int[] unwrap(int[] cached) {
+        return cached == NO_SOLUTION ? null : cached;
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.coinchangeservice.replay;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.example.coinchangeservice.CoinChangeApplication;
+import org.example.coinchangeservice.CoinChangeConfiguration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays a JSONL file of requests against a local {@link CoinChangeApplication} at a fixed rate and writes a
+ * JSON report: throughput, status counts, error rate and latency percentiles. Only compiled and run with the
+ * {@code replay} profile: {@code mvn -Preplay test}.
+ * <p>
+ * Each line is either a request body for {@code POST /coin-change}, or
+ * {@code {"path": "/coin-change/batch", "contentType": "application/json", "body": ...}} for any other endpoint
+ * (a string body is sent as is, e.g. NDJSON for the stream endpoint). Lines are sent in order, round robin.
+ * <p>
+ * The load is open loop: request i is due at {@code start + i / rate} whether or not earlier ones have
+ * completed, and its latency is measured from that due time. A stalled server therefore shows up as the
+ * queueing delay every request behind the stall would have seen, instead of as one slow sample
+ * (coordinated omission). {@code serviceTime} is measured from the actual send, for comparison.
+ * <p>
+ * Engine modes are compared by changing {@code config.yml} through {@code load.overrides}, e.g.
+ * {@code computeThreads=0;resultCacheMaxSize=0} (synchronous, uncached) against the defaults.
+ */
+@Tag("replay")
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class ReplayLoadTest {
+
+    private static final Path FILE = Paths.get(property("load.file", "src/replay/requests.jsonl"));
+    private static final double RATE = Double.parseDouble(property("load.rate", "200"));
+    private static final int SECONDS = Integer.parseInt(property("load.seconds", "10"));
+    private static final int WARMUP_SECONDS = Integer.parseInt(property("load.warmupSeconds", "2"));
+    private static final Path REPORT = Paths.get(property("load.report", "target/load-report.json"));
+    private static final String OVERRIDES = property("load.overrides", "");
+
+    /** Requests still unanswered after this count as errors ("timeout"). */
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private static final DropwizardAppExtension<CoinChangeConfiguration> APP = new DropwizardAppExtension<>(
+            CoinChangeApplication.class, "config.yml", overrides());
+
+    private final ObjectMapper mapper = Jackson.newObjectMapper();
+
+    @Test
+    public void replay() throws Exception {
+        List<HttpRequest> requests = readRequests("http://localhost:" + APP.getLocalPort());
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        // Microseconds, 3 significant digits; auto-resizing, so any latency fits
+        Histogram latency = new ConcurrentHistogram(3);
+        Histogram serviceTime = new ConcurrentHistogram(3);
+        Histogram sendLag = new ConcurrentHistogram(3);
+        Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / RATE);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(SECONDS);
+        long sent = 0;
+        for (long i = 0; ; i++) {
+            long due = start + i * interval;
+            if (due >= end) {
+                break;
+            }
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean measured = due >= measureFrom;
+            long sendTime = System.nanoTime();
+            if (measured) {
+                sent++;
+                // How far the generator itself fell behind; large values mean the results understate the rate
+                sendLag.recordValue(micros(sendTime - due));
+            }
+            CompletableFuture<?> response = http.sendAsync(requests.get((int) (i % requests.size())),
+                    HttpResponse.BodyHandlers.discarding()).handle((r, error) -> {
+                        long done = System.nanoTime();
+                        if (measured) {
+                            latency.recordValue(micros(done - due));
+                            serviceTime.recordValue(micros(done - sendTime));
+                            String status = r != null ? String.valueOf(r.statusCode())
+                                    : error.getCause() instanceof java.net.http.HttpTimeoutException ? "timeout"
+                                    : "exception";
+                            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                        }
+                        return null;
+                    });
+            inFlight.add(response);
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]))
+                .get(TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS);
+
+        Map<String, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        long errors = statusCounts.entrySet().stream()
+                .filter(e -> !e.getKey().startsWith("2"))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("file", FILE.toString());
+        report.put("overrides", OVERRIDES);
+        report.put("targetRate", RATE);
+        report.put("seconds", SECONDS);
+        report.put("warmupSeconds", WARMUP_SECONDS);
+        report.put("sent", sent);
+        report.put("throughput", (sent - errors) / (double) SECONDS);
+        report.put("statuses", statusCounts);
+        report.put("errorRate", sent == 0 ? 0 : errors / (double) sent);
+        report.put("latencyMillis", percentiles(latency));
+        report.put("serviceTimeMillis", percentiles(serviceTime));
+        report.put("sendLagMillis", percentiles(sendLag));
+        Files.createDirectories(REPORT.toAbsolutePath().getParent());
+        mapper.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+
+        System.out.printf(Locale.US, "%d requests at %.0f/s: %.0f ok/s, error rate %.4f, p99 %.2f ms "
+                        + "(service time p99 %.2f ms); report: %s%n",
+                sent, RATE, report.get("throughput"), report.get("errorRate"),
+                latency.getValueAtPercentile(99) / 1e3, serviceTime.getValueAtPercentile(99) / 1e3, REPORT);
+        assertThat(sent).isPositive();
+        assertThat(statusCounts).containsKey("200");
+    }
+
+    /**
+     * @return one prebuilt request per non-blank line
+     */
+    private List<HttpRequest> readRequests(String api) throws IOException {
+        List<HttpRequest> requests = new ArrayList<>();
+        for (String line : Files.readAllLines(FILE)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node = mapper.readTree(line);
+            String path = "/coin-change";
+            String contentType = "application/json";
+            String body = line;
+            if (node.has("body")) {
+                path = node.path("path").asText(path);
+                contentType = node.path("contentType").asText(contentType);
+                body = node.get("body").isTextual() ? node.get("body").asText() : node.get("body").toString();
+            }
+            requests.add(HttpRequest.newBuilder(URI.create(api + path))
+                    .header("Content-Type", contentType)
+                    .timeout(TIMEOUT)
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build());
+        }
+        assertThat(requests).as("requests in %s", FILE).isNotEmpty();
+        return requests;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        percentiles.put("mean", histogram.getMean() / 1e3);
+        for (double percentile : new double[]{50, 90, 99, 99.9, 99.99}) {
+            percentiles.put("p" + (percentile == (long) percentile ? String.valueOf((long) percentile)
+                    : String.valueOf(percentile)), histogram.getValueAtPercentile(percentile) / 1e3);
+        }
+        percentiles.put("max", histogram.getMaxValue() / 1e3);
+        return percentiles;
+    }
+
+    private static long micros(long nanos) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private static ConfigOverride[] overrides() {
+        List<ConfigOverride> overrides = new ArrayList<>(List.of(
+                ConfigOverride.config("server.applicationConnectors[0].port", "0"),
+                ConfigOverride.config("server.adminConnectors[0].port", "0")));
+        for (String override : OVERRIDES.split(";")) {
+            int eq = override.indexOf('=');
+            if (eq > 0) {
+                overrides.add(ConfigOverride.config(override.substring(0, eq).trim(), override.substring(eq + 1).trim()));
+            }
+        }
+        return overrides.toArray(new ConfigOverride[0]);
+    }
+
+    /** Maven passes unset properties as empty strings. */
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value;
+    }
+}
@@ -1,17 +1,29 @@
 package org.example.coinchangeservice;
 
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.dropwizard.jackson.Jackson;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import io.dropwizard.testing.junit5.ResourceExtension;
 import org.example.coinchangeservice.resources.CoinChangeResource;
+import org.example.coinchangeservice.service.CoinChangeMetrics;
 import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.Denominations;
+import org.example.coinchangeservice.service.ParallelDp;
+import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -22,9 +34,48 @@ public class CoinChangeResourceTest {
     private static final CoinChangeResource resource = new CoinChangeResource(service);
 
     private static final ResourceExtension RESOURCES = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
             .addResource(resource)
             .build();
 
+    /** One compute thread and one queue slot, and every DP request goes to the pool. */
+    private static final ThreadPoolExecutor computeExecutor =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+
+    private static final ResourceExtension ASYNC_RESOURCES = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new CoinChangeResource(new CoinChangeService(), Jackson.newObjectMapper(),
+                    computeExecutor, 0, 7))
+            .build();
+
+    /** Pool with a short timeout, over an engine that fails with an Error for 0.61. */
+    private static final ThreadPoolExecutor timeoutExecutor =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4));
+
+    private static final ResourceExtension TIMEOUT_RESOURCES = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new CoinChangeResource(new CoinChangeService() {
+                @Override
+                public int[] solveByMask(long amountCents, int denominationMask) {
+                    if (amountCents == 61) {
+                        throw new StackOverflowError();
+                    }
+                    return super.solveByMask(amountCents, denominationMask);
+                }
+            }, Map.of(), Jackson.newObjectMapper(), timeoutExecutor, 0, 3, Duration.ofMillis(200)))
+            .build();
+
+    /** A yen-like currency without a minor unit next to the default one. */
+    private static final CoinChangeService yen = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()),
+            1_000_000, null, null, ParallelDp.SEQUENTIAL,
+            new Denominations(0, new int[]{1, 5, 10, 50, 100, 500, 1000, 5000, 10000}));
+
+    private static final ResourceExtension CURRENCY_RESOURCES = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new CoinChangeResource(service, Map.of("EUR", service, "JPY", yen),
+                    Jackson.newObjectMapper(), null, 0, 1))
+            .build();
+
     @Test
     public void testValidRequest() {
         CoinChangeResource.Request req = new CoinChangeResource.Request();
@@ -78,7 +129,7 @@ public class CoinChangeResourceTest {
     @Test
     public void testNegativeTargetAmount() {
         CoinChangeResource.Request req = new CoinChangeResource.Request();
-        req.targetAmount = -5;
+        req.targetAmount = -5.0;
         req.coinDenominations = List.of(1.0, 2.0);
 
         Response response = RESOURCES.target("/coin-change")
@@ -130,4 +181,441 @@ public class CoinChangeResourceTest {
         Map<String, String> error = response.readEntity(Map.class);
         assertThat(error.get("error")).contains("Request body is missing");
     }
+
+    @Test
+    public void testCountsFormat() {
+        CoinChangeResource.Request req = new CoinChangeResource.Request();
+        req.targetAmount = 7.03;
+        req.coinDenominations = List.of(0.01, 0.5, 1.0, 5.0, 10.0);
+
+        Response response = RESOURCES.target("/coin-change")
+                .queryParam("format", "counts")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(req, MediaType.APPLICATION_JSON));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        Map<String, Integer> result = response.readEntity(Map.class);
+        assertThat(result).containsExactly(
+                Map.entry("0.01", 3), Map.entry("1.0", 2), Map.entry("5.0", 1));
+    }
+
+    @Test
+    public void testUnsupportedFormat() {
+        CoinChangeResource.Request req = new CoinChangeResource.Request();
+        req.targetAmount = 7.03;
+        req.coinDenominations = List.of(0.01, 1.0);
+
+        Response response = RESOURCES.target("/coin-change")
+                .queryParam("format", "xml")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(req, MediaType.APPLICATION_JSON));
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        Map<String, String> error = response.readEntity(Map.class);
+        assertThat(error.get("error")).contains("Unsupported format");
+    }
+
+    @Test
+    public void testBatchPreservesOrderAndReportsErrorsInline() {
+        List<CoinChangeResource.Request> batch = List.of(
+                request(7.03, List.of(0.01, 0.5, 1.0, 5.0, 10.0)),
+                request(0.6, List.of(0.01, 0.2, 0.5)),
+                request(10.0, List.of(0.03, 1.0)),
+                request(7.0, List.of(2.0)),
+                request(0.4, List.of(0.5, 0.2, 0.01)));
+
+        Response response = RESOURCES.target("/coin-change/batch")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(batch, MediaType.APPLICATION_JSON));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        List<Map<String, Object>> results = response.readEntity(List.class);
+        assertThat(results).hasSize(5);
+        assertThat(results.get(0).get("status")).isEqualTo(200);
+        assertThat(results.get(0).get("coins")).isEqualTo(List.of(0.01, 0.01, 0.01, 1.0, 1.0, 5.0));
+        assertThat(results.get(1).get("coins")).isEqualTo(List.of(0.2, 0.2, 0.2));
+        assertThat(results.get(2).get("status")).isEqualTo(400);
+        assertThat((String) results.get(2).get("error")).contains("Invalid coin denomination");
+        assertThat(results.get(3).get("status")).isEqualTo(404);
+        assertThat(results.get(4).get("coins")).isEqualTo(List.of(0.2, 0.2));
+    }
+
+    @Test
+    public void testBatchCountsFormat() {
+        List<CoinChangeResource.Request> batch = List.of(request(7.03, List.of(0.01, 1.0, 5.0)));
+
+        Response response = RESOURCES.target("/coin-change/batch")
+                .queryParam("format", "counts")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(batch, MediaType.APPLICATION_JSON));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        List<Map<String, Object>> results = response.readEntity(List.class);
+        assertThat(results.get(0).get("counts")).isEqualTo(Map.of("0.01", 3, "1.0", 2, "5.0", 1));
+    }
+
+    @Test
+    public void testEmptyBatch() {
+        Response response = RESOURCES.target("/coin-change/batch")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(List.of(), MediaType.APPLICATION_JSON));
+
+        assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    public void testRawJsonDuplicatesUnknownFieldsAndInexactCoins() {
+        String body = "{\"targetAmount\":0.6,\"coinDenominations\":[0.5,0.2,0.2,0.01],\"note\":{\"x\":[1]}}";
+
+        Response response = RESOURCES.target("/coin-change")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, MediaType.APPLICATION_JSON));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(List.class)).containsExactly(0.2, 0.2, 0.2);
+
+        // Rounds to 1 cent, but is not an accepted denomination value
+        Response inexact = RESOURCES.target("/coin-change")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity("{\"targetAmount\":1,\"coinDenominations\":[0.0100001,null]}",
+                        MediaType.APPLICATION_JSON));
+
+        assertThat(inexact.getStatus()).isEqualTo(400);
+        assertThat(inexact.readEntity(Map.class).get("error")).isEqualTo("Invalid coin denomination: 0.0100001");
+    }
+
+    @Test
+    public void testExactDecimalsAndMinorUnits() {
+        // 1.005 as a double is 1.00499…, which Math.round(x * 100) turned into 100 cents
+        Response exact = RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":\"1.005\",\"coinDenominations\":[\"0.01\",1.00]}"));
+        assertThat(exact.getStatus()).isEqualTo(200);
+        assertThat(exact.readEntity(List.class)).containsExactly(0.01, 1.0);
+
+        Response minor = RESOURCES.target("/coin-change").queryParam("format", "counts").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"amountMinor\":703,\"denominationsMinor\":[1,50,100,500,1000]}"));
+        assertThat(minor.getStatus()).isEqualTo(200);
+        assertThat(minor.readEntity(Map.class)).containsEntry("0.01", 3).containsEntry("5.0", 1)
+                .containsEntry("1.0", 2);
+
+        Response tooLarge = RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"amountMinor\":1000001,\"denominationsMinor\":[1]}"));
+        assertThat(tooLarge.getStatus()).isEqualTo(400);
+
+        Response invalidMinor = RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"amountMinor\":10,\"denominationsMinor\":[3]}"));
+        assertThat(invalidMinor.readEntity(Map.class).get("error"))
+                .isEqualTo("Invalid coin denomination: 3 minor units");
+
+        Response both = RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":1,\"amountMinor\":100,\"coinDenominations\":[1]}"));
+        assertThat(both.getStatus()).isEqualTo(400);
+        assertThat(both.readEntity(Map.class).get("error"))
+                .isEqualTo("targetAmount and amountMinor cannot both be set");
+
+        Response garbage = RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":\"1,00\",\"coinDenominations\":[1]}"));
+        assertThat(garbage.readEntity(Map.class).get("error")).isEqualTo("Invalid target amount: 1,00");
+    }
+
+    @Test
+    public void testCurrencyProfiles() {
+        Response yenChange = CURRENCY_RESOURCES.target("/coin-change").queryParam("format", "counts")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"currency\":\"JPY\",\"targetAmount\":1666,\"coinDenominations\":[1,5,10,50,100,500,1000]}"));
+        assertThat(yenChange.getStatus()).isEqualTo(200);
+        assertThat(yenChange.readEntity(Map.class)).containsEntry("1000.0", 1).containsEntry("500.0", 1)
+                .containsEntry("100.0", 1).containsEntry("50.0", 1).containsEntry("10.0", 1)
+                .containsEntry("5.0", 1).containsEntry("1.0", 1);
+
+        // The same coins and amount mean something else in each currency
+        Response fraction = CURRENCY_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"currency\":\"JPY\",\"targetAmount\":1,\"coinDenominations\":[0.01]}"));
+        assertThat(fraction.getStatus()).isEqualTo(400);
+        assertThat(fraction.readEntity(Map.class).get("error")).isEqualTo("Invalid coin denomination: 0.01");
+        Response euro = CURRENCY_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"currency\":\"EUR\",\"targetAmount\":1,\"coinDenominations\":[0.01]}"));
+        assertThat(euro.getStatus()).isEqualTo(200);
+
+        // Amounts are rounded to the currency's minor unit, limits are the currency's own
+        Response rounded = CURRENCY_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"currency\":\"JPY\",\"targetAmount\":9.5,\"coinDenominations\":[5]}"));
+        assertThat(rounded.readEntity(List.class)).containsExactly(5.0, 5.0);
+        Response tooLarge = CURRENCY_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"currency\":\"JPY\",\"amountMinor\":1000001,\"denominationsMinor\":[1]}"));
+        assertThat(tooLarge.readEntity(Map.class).get("error"))
+                .isEqualTo("Target amount must be between 0 and 1,000,000");
+
+        Response unknown = CURRENCY_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"currency\":\"XYZ\",\"targetAmount\":1,\"coinDenominations\":[1]}"));
+        assertThat(unknown.getStatus()).isEqualTo(400);
+        assertThat(unknown.readEntity(Map.class).get("error")).isEqualTo("Unsupported currency: XYZ");
+
+        Response batch = CURRENCY_RESOURCES.target("/coin-change/batch").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("[{\"currency\":\"JPY\",\"targetAmount\":15,\"coinDenominations\":[5,10]},"
+                        + "{\"targetAmount\":0.15,\"coinDenominations\":[0.05,0.1]}]"));
+        assertThat(batch.getStatus()).isEqualTo(200);
+        assertThat(batch.readEntity(List.class)).containsExactly(
+                Map.of("status", 200, "coins", List.of(5.0, 10.0)), Map.of("status", 200, "coins", List.of(0.05, 0.1)));
+    }
+
+    @Test
+    public void testRequestRoundTripsThroughObjectMapper() throws Exception {
+        ObjectMapper mapper = Jackson.newObjectMapper();
+        CoinChangeResource.Request decimals = request(7.03, List.of(0.01, 0.5, 1.0, 5.0, 10.0));
+        decimals.availableCounts = List.of(10, 10, 10, 10, 10);
+        CoinChangeResource.Request minor = new CoinChangeResource.Request();
+        minor.amountMinor = 703L;
+        minor.denominationsMinor = List.of(1, 50, 100, 500, 1000);
+        minor.currency = "EUR";
+
+        // Unset fields are left out, so a client serializing the class never sends both forms of a field
+        String minorJson = mapper.writeValueAsString(minor);
+        assertThat(minorJson).doesNotContain("targetAmount").doesNotContain("coinDenominations");
+        assertThat(mapper.writeValueAsString(decimals)).doesNotContain("amountMinor")
+                .doesNotContain("denominationsMinor").doesNotContain("currency");
+
+        CoinChangeResource inProcessResource = new CoinChangeResource(service, Map.of("EUR", service), mapper,
+                null, 0, 1);
+        for (CoinChangeResource.Request request : List.of(decimals, minor)) {
+            String json = mapper.writeValueAsString(request);
+            Response overHttp = CURRENCY_RESOURCES.target("/coin-change").queryParam("format", "counts")
+                    .request(MediaType.APPLICATION_JSON).post(Entity.json(json));
+            assertThat(overHttp.getStatus()).as(json).isEqualTo(200);
+            assertThat(overHttp.readEntity(Map.class)).as(json).containsEntry("5.0", 1).containsEntry("1.0", 2)
+                    .containsEntry("0.01", 3);
+            Response inProcess = inProcessResource.minimumCoins(mapper.readValue(json, CoinChangeResource.Request.class),
+                    CoinChangeResource.FORMAT_COUNTS);
+            assertThat(inProcess.getStatus()).as(json).isEqualTo(200);
+        }
+
+        // Explicit nulls are the same as absent fields
+        Response nulls = RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":null,\"amountMinor\":60,\"coinDenominations\":null,"
+                        + "\"denominationsMinor\":[1,20,50],\"availableCounts\":null,\"currency\":null}"));
+        assertThat(nulls.readEntity(List.class)).containsExactly(0.2, 0.2, 0.2);
+
+        // Both forms set in code are rejected as they are over HTTP
+        CoinChangeResource.Request both = request(1.0, List.of(1.0));
+        both.amountMinor = 100L;
+        assertThat(resource.minimumCoins(both, null).getEntity())
+                .isEqualTo(Map.of("error", "targetAmount and amountMinor cannot both be set"));
+    }
+
+    @Test
+    public void testAvailableCounts() {
+        // Counts follow the request order; the two 0.2 entries add up to two coins
+        String body = "{\"availableCounts\":[1,1,1,10],\"targetAmount\":0.6,\"coinDenominations\":[0.2,0.5,0.2,0.01]}";
+
+        Response response = RESOURCES.target("/coin-change")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, MediaType.APPLICATION_JSON));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(List.class)).containsExactly(0.01, 0.01, 0.01, 0.01, 0.01, 0.01, 0.01,
+                0.01, 0.01, 0.01, 0.5);
+
+        CoinChangeResource.Request req = new CoinChangeResource.Request();
+        req.targetAmount = 0.6;
+        req.coinDenominations = List.of(0.01, 0.2, 0.5);
+        req.availableCounts = List.of(5, 2, 1);
+        Response noSolution = RESOURCES.target("/coin-change")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(req, MediaType.APPLICATION_JSON));
+        assertThat(noSolution.getStatus()).isEqualTo(404);
+
+        req.availableCounts = List.of(5, 2);
+        Response mismatch = RESOURCES.target("/coin-change")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(req, MediaType.APPLICATION_JSON));
+        assertThat(mismatch.getStatus()).isEqualTo(400);
+        assertThat(mismatch.readEntity(Map.class).get("error"))
+                .isEqualTo("availableCounts must have one entry per coin denomination");
+    }
+
+    @Test
+    public void testAlternativesPages() {
+        String body = "{\"targetAmount\":0.6,\"coinDenominations\":[0.01,0.2,0.5]}";
+
+        Response first = RESOURCES.target("/coin-change/alternatives")
+                .queryParam("limit", 2)
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, MediaType.APPLICATION_JSON));
+        assertThat(first.getStatus()).isEqualTo(200);
+        Map<String, Object> page = first.readEntity(Map.class);
+        assertThat(page.get("nextOffset")).isEqualTo(2);
+        List<Map<String, Object>> alternatives = (List<Map<String, Object>>) page.get("alternatives");
+        assertThat(alternatives).extracting(a -> a.get("coinCount")).containsExactly(3, 11);
+        assertThat(alternatives.get(0).get("coins")).isEqualTo(List.of(0.2, 0.2, 0.2));
+
+        // 0.6 has 5 combinations in all: the last page has no nextOffset
+        Response last = RESOURCES.target("/coin-change/alternatives")
+                .queryParam("offset", 4)
+                .queryParam("format", "counts")
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(body, MediaType.APPLICATION_JSON));
+        Map<String, Object> lastPage = last.readEntity(Map.class);
+        assertThat(lastPage).doesNotContainKey("nextOffset");
+        assertThat((List<Map<String, Object>>) lastPage.get("alternatives")).singleElement()
+                .satisfies(a -> assertThat(a.get("counts")).isEqualTo(Map.of("0.01", 60)));
+
+        // Thousands of combinations down, each up to 100,000 coins long: the search gives up instead
+        Response deep = RESOURCES.target("/coin-change/alternatives")
+                .queryParam("offset", CoinChangeResource.MAX_ALTERNATIVES_OFFSET)
+                .request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity("{\"targetAmount\":1000.0,\"coinDenominations\":[0.01,0.05]}",
+                        MediaType.APPLICATION_JSON));
+        assertThat(deep.getStatus()).isEqualTo(422);
+        assertThat(deep.readEntity(Map.class).get("error").toString()).contains("ask for an earlier page");
+    }
+
+    @Test
+    public void testStreamNdjson() {
+        String body = "{\"targetAmount\":7.03,\"coinDenominations\":[0.01,0.5,1.0,5.0,10.0]}\n"
+                + "{\"targetAmount\":10.0,\"coinDenominations\":[0.03,1.0]}\n"
+                + "{\"targetAmount\":0.6,\"coinDenominations\":[0.01,0.2,0.5]}\n";
+
+        Response response = RESOURCES.target("/coin-change/stream")
+                .queryParam("format", "counts")
+                .request(CoinChangeResource.APPLICATION_NDJSON)
+                .post(Entity.entity(body, CoinChangeResource.APPLICATION_NDJSON));
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.readEntity(String.class).split("\n")).containsExactly(
+                "{\"status\":200,\"counts\":{\"0.01\":3,\"1.0\":2,\"5.0\":1}}",
+                "{\"status\":400,\"error\":\"Invalid coin denomination: 0.03\"}",
+                "{\"status\":200,\"counts\":{\"0.2\":3}}");
+    }
+
+    @Test
+    public void testStreamStopsAtMalformedLine() {
+        String body = "{\"targetAmount\":1.0,\"coinDenominations\":[1.0]}\n{\"targetAmount\":\n";
+
+        Response response = RESOURCES.target("/coin-change/stream")
+                .request(CoinChangeResource.APPLICATION_NDJSON)
+                .post(Entity.entity(body, CoinChangeResource.APPLICATION_NDJSON));
+
+        String[] lines = response.readEntity(String.class).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("{\"status\":200,\"coins\":[1.0]}");
+        assertThat(lines[1]).contains("\"status\":400").contains("Malformed request");
+    }
+
+    @Test
+    public void testExpensiveRequestsRunOnComputePoolAndAreRejectedWhenFull() throws Exception {
+        CoinChangeResource.Request dp = request(0.6, List.of(0.01, 0.2, 0.5));
+        assertThat(ASYNC_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(dp, MediaType.APPLICATION_JSON)).readEntity(List.class))
+                .containsExactly(0.2, 0.2, 0.2);
+        // Batch groups and stream lines go through the same pool
+        assertThat(ASYNC_RESOURCES.target("/coin-change/batch").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json(List.of(dp))).readEntity(List.class))
+                .containsExactly(Map.of("status", 200, "coins", List.of(0.2, 0.2, 0.2)));
+        assertThat(ASYNC_RESOURCES.target("/coin-change/alternatives").request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(dp, MediaType.APPLICATION_JSON)).getStatus()).isEqualTo(200);
+
+        // The response may be written just before the worker task returns
+        while (computeExecutor.getActiveCount() > 0) {
+            Thread.sleep(1);
+        }
+
+        // Occupy the only worker and the only queue slot
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        computeExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        computeExecutor.execute(() -> { });
+        try {
+            Response rejected = ASYNC_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(dp, MediaType.APPLICATION_JSON));
+            assertThat(rejected.getStatus()).isEqualTo(503);
+            assertThat(rejected.getHeaderString("Retry-After")).isEqualTo("7");
+            Response alternatives = ASYNC_RESOURCES.target("/coin-change/alternatives")
+                    .request(MediaType.APPLICATION_JSON).post(Entity.entity(dp, MediaType.APPLICATION_JSON));
+            assertThat(alternatives.getStatus()).isEqualTo(503);
+            assertThat(alternatives.getHeaderString("Retry-After")).isEqualTo("7");
+
+            // Greedy requests never wait for the pool
+            CoinChangeResource.Request greedyRequest = request(7.03, List.of(0.01, 1.0, 5.0));
+            Response greedy = ASYNC_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(greedyRequest, MediaType.APPLICATION_JSON));
+            assertThat(greedy.getStatus()).isEqualTo(200);
+
+            // Nor do greedy batch items, while the DP item is turned away like a single request
+            Response batch = ASYNC_RESOURCES.target("/coin-change/batch").request(MediaType.APPLICATION_JSON)
+                    .post(Entity.json(List.of(dp, greedyRequest)));
+            assertThat(batch.getStatus()).isEqualTo(200);
+            assertThat(batch.getHeaderString("Retry-After")).isEqualTo("7");
+            List<Map<String, Object>> items = batch.readEntity(List.class);
+            assertThat(items.get(0)).containsEntry("status", 503);
+            assertThat(items.get(1)).containsEntry("status", 200);
+
+            String stream = ASYNC_RESOURCES.target("/coin-change/stream")
+                    .request(CoinChangeResource.APPLICATION_NDJSON)
+                    .post(Entity.entity("{\"targetAmount\":0.6,\"coinDenominations\":[0.01,0.2,0.5]}\n"
+                            + "{\"targetAmount\":1.0,\"coinDenominations\":[1.0]}\n",
+                            CoinChangeResource.APPLICATION_NDJSON))
+                    .readEntity(String.class);
+            assertThat(stream.split("\n")).hasSize(2);
+            assertThat(stream.split("\n")[0]).contains("\"status\":503");
+            assertThat(stream.split("\n")[1]).isEqualTo("{\"status\":200,\"coins\":[1.0]}");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testPooledRequestsAlwaysAnswered() throws Exception {
+        // An Error on the worker still answers the request
+        Response failed = TIMEOUT_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                .post(Entity.entity(request(0.61, List.of(0.01, 0.2, 0.5)), MediaType.APPLICATION_JSON));
+        assertThat(failed.getStatus()).isEqualTo(500);
+        String failedLine = TIMEOUT_RESOURCES.target("/coin-change/stream")
+                .request(CoinChangeResource.APPLICATION_NDJSON)
+                .post(Entity.entity("{\"targetAmount\":0.61,\"coinDenominations\":[0.01,0.2,0.5]}\n",
+                        CoinChangeResource.APPLICATION_NDJSON))
+                .readEntity(String.class);
+        assertThat(failedLine).isEqualTo("{\"status\":500,\"error\":\"Computation failed\"}\n");
+
+        // A request still queued behind a stuck worker times out with 503
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        timeoutExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        try {
+            Response timedOut = TIMEOUT_RESOURCES.target("/coin-change").request(MediaType.APPLICATION_JSON)
+                    .post(Entity.entity(request(0.6, List.of(0.01, 0.2, 0.5)), MediaType.APPLICATION_JSON));
+            assertThat(timedOut.getStatus()).isEqualTo(503);
+            assertThat(timedOut.getHeaderString("Retry-After")).isEqualTo("3");
+
+            Response timedOutBatch = TIMEOUT_RESOURCES.target("/coin-change/batch")
+                    .request(MediaType.APPLICATION_JSON)
+                    .post(Entity.json(List.of(request(0.6, List.of(0.01, 0.2, 0.5)))));
+            assertThat(timedOutBatch.readEntity(List.class)).containsExactly(
+                    Map.of("status", 503, "error", "Server is busy, retry later"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static CoinChangeResource.Request request(double targetAmount, List<Double> coinDenominations) {
+        CoinChangeResource.Request req = new CoinChangeResource.Request();
+        req.targetAmount = targetAmount;
+        req.coinDenominations = coinDenominations;
+        return req;
+    }
 }
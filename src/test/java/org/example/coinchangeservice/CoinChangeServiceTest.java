@@ -1,12 +1,35 @@
 package org.example.coinchangeservice;
 
+import com.codahale.metrics.MetricRegistry;
+import org.example.coinchangeservice.service.AmountTooLargeException;
+import org.example.coinchangeservice.service.CoinChangeMetrics;
 import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.Denominations;
+import org.example.coinchangeservice.service.DpTableCache;
+import org.example.coinchangeservice.service.MinorUnits;
+import org.example.coinchangeservice.service.ParallelDp;
+import org.example.coinchangeservice.service.ResultCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class CoinChangeServiceTest {
 
@@ -148,4 +171,481 @@ public class CoinChangeServiceTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    public void testCalculateCoinCounts_largeAmountSmallCoin() {
+        Map<Double, Integer> result = service.calculateCoinCounts(10000.0, List.of(0.01));
+
+        assertThat(result).containsExactly(Map.entry(0.01, 1_000_000));
+    }
+
+    @Test
+    public void testCalculateCoinCounts_matchesExpandedList() {
+        List<Double> coins = List.of(0.01, 0.5, 1.0, 5.0, 10.0);
+
+        Map<Double, Integer> counts = service.calculateCoinCounts(7.03, coins);
+
+        assertThat(counts).containsExactly(Map.entry(0.01, 3), Map.entry(1.0, 2), Map.entry(5.0, 1));
+        assertThat(counts.values().stream().mapToInt(Integer::intValue).sum())
+                .isEqualTo(service.calculateMinCoins(7.03, coins).size());
+    }
+
+    @Test
+    public void testCalculateCoinCounts_noSolution() {
+        assertThat(service.calculateCoinCounts(7.0, List.of(2.0))).isEmpty();
+    }
+
+    @Test
+    public void testSolve_primitiveCountsAlignedWithInput() {
+        int[] counts = service.solve(703, new int[]{1000, 1, 500, 100, 50});
+
+        assertThat(counts).containsExactly(0, 3, 1, 2, 0);
+    }
+
+    @Test
+    public void testSolve_greedyAndDpAgreeOnCanonicalSet() {
+        int[] coins = {1, 5, 10, 20, 50, 100, 200};
+        for (int amount = 0; amount <= 1000; amount += 7) {
+            assertThat(service.solve(amount, coins, false)).containsExactly(service.solve(amount, coins, true));
+        }
+    }
+
+    @Test
+    public void testSolve_outOfRangeOrNoSolution() {
+        assertThat(service.solve(-1, new int[]{1})).isNull();
+        assertThat(service.solve(1_000_001, new int[]{1})).isNull();
+        assertThat(service.solve(300, new int[]{200}, false)).isNull();
+    }
+
+    @Test
+    public void testCalculateMinCoins_nonCanonicalSetFallsBackToDP() {
+        // Greedy would return 0.5 + 10 x 0.01 (11 coins); the optimum is 3 x 0.2
+        List<Double> result = service.calculateMinCoins(0.6, List.of(0.01, 0.2, 0.5));
+
+        assertThat(result).containsExactly(0.2, 0.2, 0.2);
+    }
+
+    @Test
+    public void testCalculateMinCoins_greedyWouldMissSolution() {
+        // Greedy takes 0.5 first and is left with 0.1, which 0.2 cannot form
+        List<Double> result = service.calculateMinCoins(0.6, List.of(0.2, 0.5));
+
+        assertThat(result).containsExactly(0.2, 0.2, 0.2);
+    }
+
+    @Test
+    public void testIsGreedyOptimal() {
+        assertThat(service.isGreedyOptimal(new int[]{1, 5, 10, 20, 50, 100, 200, 500, 1000, 5000, 10000, 100000}))
+                .isTrue();
+        assertThat(service.isGreedyOptimal(new int[]{100, 1, 5})).isTrue();
+        assertThat(service.isGreedyOptimal(new int[]{1, 20, 50})).isFalse();
+        assertThat(service.isGreedyOptimal(new int[]{20, 50})).isFalse();
+        assertThat(service.isGreedyOptimal(new int[]{20, 100})).isTrue();
+    }
+
+    @Test
+    public void testMetricsTaggedByAlgorithmAmountAndSetSize() {
+        MetricRegistry registry = new MetricRegistry();
+        CoinChangeService instrumented = new CoinChangeService(null, new CoinChangeMetrics(registry));
+
+        instrumented.calculateMinCoins(7.03, List.of(0.01, 0.5, 1.0, 5.0, 10.0));
+        instrumented.calculateMinCoins(0.6, List.of(0.01, 0.2, 0.5));
+        instrumented.calculateMinCoins(7.0, List.of(2.0));
+
+        String prefix = "org.example.coinchangeservice.service.CoinChangeService.";
+        assertThat(registry.timer(prefix + "solve.greedy.amount-le-100.coins-5").getCount()).isEqualTo(1);
+        assertThat(registry.timer(prefix + "solve.dp.amount-le-1.coins-3").getCount()).isEqualTo(1);
+        assertThat(registry.counter(prefix + "noSolution").getCount()).isEqualTo(1);
+        assertThat(registry.histogram(prefix + "resultCoins").getSnapshot().getValues()).containsExactly(3, 6);
+    }
+
+    @Test
+    public void testCalculateMinCoins_largeResultIsLazyView() {
+        List<Double> result = service.calculateMinCoins(10000.0, List.of(0.01, 0.05));
+
+        assertThat(result).hasSize(200_000);
+        assertThat(result.get(0)).isEqualTo(0.05);
+        assertThat(result.get(199_999)).isEqualTo(0.05);
+        assertThat(result.stream().distinct()).containsExactly(0.05);
+    }
+
+    @Test
+    public void testCalculateMinCoins_duplicateDenominations() {
+        List<Double> result = service.calculateMinCoins(2.02, List.of(1.0, 0.01, 1.0));
+
+        assertThat(result).containsExactly(0.01, 0.01, 1.0, 1.0);
+    }
+
+    @Test
+    public void testCalculateMinCoins_dpReductionMatchesFullTable() {
+        int[] coins = {1, 20, 50};
+        int[] expected = minCoinCounts(100_000, coins);
+
+        for (int amount = 99_000; amount <= 100_000; amount += 37) {
+            int[] counts = service.solve(amount, coins);
+            assertThat(counts[0] * 1 + counts[1] * 20 + counts[2] * 50).isEqualTo(amount);
+            assertThat(counts[0] + counts[1] + counts[2]).isEqualTo(expected[amount]);
+        }
+        // Large amounts with {0.20, 0.50}: the reduction must keep feasibility
+        assertThat(service.solve(30_030, new int[]{20, 50})).containsExactly(4, 599);
+        assertThat(service.solve(30_015, new int[]{20, 50})).isNull();
+    }
+
+    @Test
+    public void testCalculateMinCoins_configurableLimitBeyond10000() {
+        CoinChangeService large = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()), 5_000_000);
+
+        Map<Double, Integer> counts = large.calculateCoinCounts(4_999_000.6, List.of(0.01, 0.2, 0.5, 1000.0));
+
+        assertThat(counts).containsExactly(Map.entry(0.2, 3), Map.entry(1000.0, 4999));
+        assertThat(large.calculateMinCoins(5_000_000.01, List.of(1.0))).isEmpty();
+    }
+
+    @Test
+    public void testSolveByMask_countsAscendingByDenomination() {
+        int mask = Denominations.DEFAULT.mask(new int[]{50, 1, 20}, 3);
+
+        int[] counts = service.solveByMask(60, mask);
+
+        assertThat(Denominations.DEFAULT.bit(0.2)).isEqualTo(3);
+        assertThat(mask).isEqualTo(0b11001);
+        assertThat(counts).containsExactly(0, 3, 0);
+        assertThat(service.toCountMap(counts, mask)).containsExactly(Map.entry(0.2, 3));
+        assertThat(service.toCoinList(counts, mask)).containsExactly(0.2, 0.2, 0.2);
+        assertThat(service.countCoinsBatch(new long[]{60, 61, -1}, mask))
+                .isDeepEqualTo(new int[][]{{0, 3, 0}, {1, 3, 0}, null});
+        assertThatThrownBy(() -> service.solveByMask(60, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testPrecomputedTables_matchDpAndAreRemappedOnRestart(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("tables.bin");
+        List<List<Double>> hotSets = List.of(List.of(0.5, 0.2, 0.01), List.of(0.01, 0.05, 0.1));
+        MetricRegistry registry = new MetricRegistry();
+        CoinChangeService warm = new CoinChangeService(null, new CoinChangeMetrics(registry));
+
+        // The canonical {0.01, 0.05, 0.10} set is left to greedy
+        assertThat(warm.loadPrecomputedTables(file, hotSets)).isEqualTo(1);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+
+        for (long amount = 0; amount <= 1_000_000; amount += 997) {
+            assertThat(warm.solve(amount, new int[]{50, 20, 1})).containsExactly(service.solve(amount, new int[]{50, 20, 1}));
+        }
+        assertThat(warm.calculateCoinCounts(0.6, List.of(0.2, 0.5))).containsExactly(Map.entry(0.2, 3));
+        assertThat(registry.getTimers().keySet()).anyMatch(name -> name.contains(".precomputed."));
+
+        CoinChangeService restarted = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()));
+        assertThat(restarted.loadPrecomputedTables(file, hotSets)).isEqualTo(1);
+        assertThat(Files.getLastModifiedTime(file).toMillis()).isEqualTo(modified);
+        assertThat(restarted.calculateMinCoins(0.6, List.of(0.01, 0.2, 0.5))).containsExactly(0.2, 0.2, 0.2);
+
+        // A truncated file or a file of something else is reported, not mapped or overwritten
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 1));
+        assertThatThrownBy(() -> new CoinChangeService().loadPrecomputedTables(file, hotSets))
+                .isInstanceOf(java.io.IOException.class)
+                .hasMessageContaining("Corrupt precomputed table file").hasMessageContaining("past the end");
+        Files.write(file, java.util.Arrays.copyOf(bytes, 20));
+        assertThatThrownBy(() -> new CoinChangeService().loadPrecomputedTables(file, hotSets))
+                .hasMessageContaining("is truncated");
+        Files.writeString(file, "not a table file");
+        assertThatThrownBy(() -> new CoinChangeService().loadPrecomputedTables(file, hotSets))
+                .hasMessageStartingWith("Not a precomputed table file");
+        assertThat(Files.readString(file)).isEqualTo("not a table file");
+    }
+
+    @Test
+    public void testResultCache_identicalConcurrentRequestsComputeOnce() throws Exception {
+        MetricRegistry registry = new MetricRegistry();
+        CoinChangeService coalescing = new CoinChangeService(null, new CoinChangeMetrics(registry),
+                CoinChangeService.DEFAULT_MAX_TARGET_AMOUNT, 0, new ResultCache(100, Duration.ofMinutes(1)));
+        int mask = Denominations.DEFAULT.mask(new int[]{1, 20, 50, 100000}, 4);
+        int[] expected = service.solveByMask(999_999, mask);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return coalescing.solveByMask(999_999, mask);
+                }));
+            }
+            start.countDown();
+            for (Future<int[]> result : results) {
+                assertThat(result.get()).containsExactly(expected);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long shared = registry.meter("org.example.coinchangeservice.service.CoinChangeService.coalesced").getCount()
+                + registry.meter("org.example.coinchangeservice.service.CoinChangeService.resultCache.hits").getCount();
+        assertThat(shared).isEqualTo(threads - 1);
+        // Callers get their own copy of the shared result
+        coalescing.solveByMask(999_999, mask)[0] = -1;
+        assertThat(coalescing.solveByMask(999_999, mask)).containsExactly(expected);
+    }
+
+    @Test
+    public void testDpPermitsSharedBetweenCurrencies() throws Exception {
+        Semaphore dpPermits = new Semaphore(1);
+        CoinChangeService euro = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()),
+                100_000, dpPermits, null, ParallelDp.SEQUENTIAL, Denominations.DEFAULT);
+        CoinChangeService yen = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()),
+                100_000, dpPermits, null, ParallelDp.SEQUENTIAL, new Denominations(0, new int[]{1, 10, 50}));
+        assertThat(euro.solve(60, new int[]{1, 20, 50}, false)).containsExactly(0, 3, 0);
+        assertThat(dpPermits.availablePermits()).isEqualTo(1);
+
+        // While the only permit is held (here by the test, as if by a euro fill), the yen fill waits for it
+        dpPermits.acquire();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<int[]> fill = executor.submit(() -> yen.solve(80, new int[]{1, 10, 50}, false));
+            Thread.sleep(100);
+            assertThat(fill).isNotDone();
+            dpPermits.release();
+            assertThat(fill.get(5, TimeUnit.SECONDS)).containsExactly(0, 3, 1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelDp_identicalToSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelDp parallel = new ParallelDp(pool, 1);
+            CoinChangeService sequential = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()),
+                    100_000, 0, null, ParallelDp.SEQUENTIAL);
+            CoinChangeService uncached = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()),
+                    100_000, 0, null, parallel);
+            // The cached table is extended in steps, so the parallel fill also starts from non-zero limits
+            CoinChangeService cached = new CoinChangeService(
+                    new DpTableCache(4, 10_000_000, new MetricRegistry(), parallel),
+                    new CoinChangeMetrics(new MetricRegistry()), 100_000, 0, null, parallel);
+
+            for (int[] coins : List.of(new int[]{1, 20, 50, 100000}, new int[]{20, 50, 500, 10000},
+                    new int[]{5, 20, 50, 200, 1000, 5000})) {
+                for (long amount = 3; amount <= 10_000_000; amount = amount * 7 + 13) {
+                    int[] expected = sequential.solve(amount, coins, false);
+                    assertThat(uncached.solve(amount, coins, false)).isEqualTo(expected);
+                    assertThat(cached.solve(amount, coins, false)).isEqualTo(expected);
+                }
+                for (long amount = 0; amount <= 3000; amount++) {
+                    assertThat(cached.solve(amount, coins, false)).isEqualTo(sequential.solve(amount, coins, false));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testSolveBounded_matchesNaiveBoundedKnapsack() {
+        java.util.Random random = new java.util.Random(17);
+        for (int[] coins : List.of(new int[]{1, 20, 50}, new int[]{1, 5, 10, 20, 50}, new int[]{5, 20, 50, 200})) {
+            int mask = Denominations.DEFAULT.mask(coins, coins.length);
+            for (int round = 0; round < 40; round++) {
+                int[] available = new int[coins.length];
+                for (int j = 0; j < coins.length; j++) available[j] = random.nextInt(6);
+                int[] best = naiveBoundedMinCoins(300, coins, available);
+
+                for (int amount = 0; amount <= 300; amount++) {
+                    int[] counts = service.solveBounded(amount, mask, available);
+                    if (best[amount] == Integer.MAX_VALUE) {
+                        assertThat(counts).as("amount %d, available %s", amount, available).isNull();
+                        continue;
+                    }
+                    assertThat(counts).as("amount %d, available %s", amount, available).isNotNull();
+                    int total = 0;
+                    int sum = 0;
+                    for (int j = 0; j < coins.length; j++) {
+                        assertThat(counts[j]).isBetween(0, available[j]);
+                        total += counts[j];
+                        sum += counts[j] * coins[j];
+                    }
+                    assertThat(sum).isEqualTo(amount);
+                    assertThat(total).isEqualTo(best[amount]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSolveBounded_largeAmountsReduced() {
+        // 3,999,999.60: two int rows of the full amount would need 3.2 GB
+        CoinChangeService large = new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()), 5_000_000);
+        int mask = Denominations.DEFAULT.mask(new int[]{1, 20, 50}, 3);
+        // Unlimited optimum: three 0.2 coins, but only two are available
+        assertThat(large.solveBounded(399_999_960L, mask, new int[]{100, 2, 10_000_000}))
+                .containsExactly(10, 0, 7_999_999);
+        assertThat(large.boundedDpWork(399_999_960L, mask, new int[]{100, 2, 10_000_000})).isLessThan(10_000);
+
+        // Too few 0.5 coins to set aside: the rest would need a DP over ~400 million entries
+        assertThatThrownBy(() -> large.solveBounded(399_999_960L, mask, new int[]{500_000_000, 2, 1000}))
+                .isInstanceOf(AmountTooLargeException.class);
+    }
+
+    @Test
+    public void testSolveBounded_largeInventories() {
+        int mask = Denominations.DEFAULT.mask(new int[]{1, 5, 10, 20, 50, 100}, 6);
+        // Greedy fits: answered by the unlimited-supply fast path
+        assertThat(service.solveBounded(999_999, mask, new int[]{5000, 5000, 5000, 5000, 5000, 10_000}))
+                .containsExactly(4, 1, 0, 2, 1, 9999);
+        // Only 3,000 coins of 1.00: the rest must come from smaller coins
+        assertThat(service.solveBounded(999_999, mask, new int[]{100, 100, 100, 100, 20_000, 3000}))
+                .containsExactly(4, 1, 0, 2, 13_999, 3000);
+        assertThat(service.solveBounded(999_999, mask, new int[]{10, 10, 10, 10, 10, 10})).isNull();
+        assertThatThrownBy(() -> service.solveBounded(100, mask, new int[]{1, 2})).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.solveBounded(100, mask, new int[]{1, 1, 1, 1, 1, -1}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void testAlternatives_allCombinationsInOrderOfCoinCount() {
+        int[] coins = {1, 5, 20, 50};
+        int mask = Denominations.DEFAULT.mask(coins, coins.length);
+        for (int amount : new int[]{0, 7, 60, 99}) {
+            List<int[]> alternatives = service.alternatives(amount, mask).collect(java.util.stream.Collectors.toList());
+
+            // Every multiset of coins summing to the amount, each exactly once
+            long combinations = 0;
+            for (int b = 0; b * 50 <= amount; b++)
+                for (int t = 0; b * 50 + t * 20 <= amount; t++)
+                    for (int f = 0; b * 50 + t * 20 + f * 5 <= amount; f++) combinations++;
+            assertThat(alternatives).hasSize((int) combinations);
+            assertThat(alternatives.stream().map(java.util.Arrays::toString).distinct().count()).isEqualTo(combinations);
+
+            int previous = 0;
+            for (int[] counts : alternatives) {
+                int total = 0;
+                int sum = 0;
+                for (int j = 0; j < coins.length; j++) {
+                    total += counts[j];
+                    sum += counts[j] * coins[j];
+                }
+                assertThat(sum).isEqualTo(amount);
+                assertThat(total).isGreaterThanOrEqualTo(previous);
+                previous = total;
+            }
+            int optimal = java.util.Arrays.stream(service.solveByMask(amount, mask)).sum();
+            assertThat(java.util.Arrays.stream(alternatives.get(0)).sum()).isEqualTo(optimal);
+        }
+
+        // 0.60 from {0.01, 0.2, 0.5}: 3 x 0.2, then 0.5 + 10 x 0.01 ...
+        int nonCanonical = Denominations.DEFAULT.mask(new int[]{1, 20, 50}, 3);
+        assertThat(service.alternatives(60, nonCanonical).limit(2)).containsExactly(new int[]{0, 3, 0},
+                new int[]{10, 0, 1});
+        assertThat(service.alternatives(3, Denominations.DEFAULT.mask(new int[]{20}, 1))).isEmpty();
+        assertThat(service.alternatives(100_001, nonCanonical)).isEmpty();
+    }
+
+    @Test
+    public void testAlternatives_cachedRowsAndSearchBudget() {
+        DpTableCache cache = new DpTableCache(8, 1_000_000, new MetricRegistry());
+        CoinChangeService cached = new CoinChangeService(cache);
+        int[] coins = {1, 5, 20, 50};
+        int mask = Denominations.DEFAULT.mask(coins, coins.length);
+        assertThat(cached.alternativesWork(99, mask, 1)).isGreaterThan(99 * 4);
+        assertThat(cached.alternatives(99, mask).map(java.util.Arrays::toString))
+                .containsExactlyElementsOf(service.alternatives(99, mask).map(java.util.Arrays::toString)
+                        .collect(java.util.stream.Collectors.toList()));
+
+        // The search read the tables of the set and of its prefix sets, which now only cost the search
+        assertThat(cache.limit(coins)).isEqualTo(99);
+        assertThat(cache.limit(new int[]{1, 5})).isEqualTo(99);
+        assertThat(cached.alternativesWork(99, mask, 1)).isEqualTo(100 * 4);
+        assertThat(cached.solveByMask(99, mask)).containsExactly(4, 1, 2, 1);
+
+        // 1000.00 from 0.01 and 0.05: each combination is up to 100,000 coins long, so deep pages are refused
+        int pennies = Denominations.DEFAULT.mask(new int[]{1, 5}, 2);
+        assertThat(cached.alternatives(100_000, pennies).limit(3).count()).isEqualTo(3);
+        assertThatThrownBy(() -> cached.alternatives(100_000, pennies).skip(10_000).findFirst())
+                .isInstanceOf(AmountTooLargeException.class);
+    }
+
+    @Test
+    public void testMinorUnits_exactDecimals() {
+        assertThat(MinorUnits.parse("0.1", 2, RoundingMode.HALF_UP)).isEqualTo(10);
+        assertThat(MinorUnits.parse("1.005", 2, RoundingMode.HALF_UP)).isEqualTo(101); // Math.round(1.005 * 100) gives 100
+        assertThat(MinorUnits.parse("0.1000000001", 2, RoundingMode.HALF_UP)).isEqualTo(10);
+        assertThat(MinorUnits.parse("0.004", 2, RoundingMode.HALF_UP)).isEqualTo(0);
+        assertThat(MinorUnits.parse("-2.5", 2, RoundingMode.HALF_UP)).isEqualTo(-250);
+        assertThat(MinorUnits.parse("1e3", 2, RoundingMode.HALF_UP)).isEqualTo(100000);
+        assertThat(MinorUnits.parse("25E-2", 2, RoundingMode.HALF_UP)).isEqualTo(25);
+        assertThat(MinorUnits.parse("92233720368547758.07", 2, RoundingMode.HALF_UP)).isEqualTo(Long.MAX_VALUE);
+        assertThat(MinorUnits.parse("1e400", 2, RoundingMode.HALF_UP)).isEqualTo(Long.MAX_VALUE);
+        assertThat(MinorUnits.parse("12345678901234.56", 2, RoundingMode.HALF_UP)).isEqualTo(1234567890123456L);
+        assertThat(MinorUnits.parse("1234.5", 0, RoundingMode.HALF_UP)).isEqualTo(1235);
+        for (String invalid : new String[]{"", "-", ".", "1e", "1.2.3", "0x10", "NaN", " 1"}) {
+            assertThat(MinorUnits.parse(invalid, 2, RoundingMode.HALF_UP)).as(invalid).isEqualTo(MinorUnits.INVALID);
+        }
+
+        char[] text = "[0.10,0.105]".toCharArray();
+        assertThat(MinorUnits.parse(text, 1, 4, 2, RoundingMode.UNNECESSARY)).isEqualTo(10);
+        assertThat(MinorUnits.parse(text, 6, 5, 2, RoundingMode.UNNECESSARY)).isEqualTo(MinorUnits.INVALID);
+
+        // Truncated to a finer scale first, then rounded: same result as rounding the text directly
+        long fine = MinorUnits.parse("1.0049999", 4, RoundingMode.DOWN);
+        assertThat(fine).isEqualTo(10049);
+        assertThat(MinorUnits.rescale(fine, 4, 2, RoundingMode.HALF_UP)).isEqualTo(100);
+        assertThat(MinorUnits.rescale(-10050, 4, 2, RoundingMode.HALF_UP)).isEqualTo(-101);
+        assertThat(MinorUnits.rescale(10050, 4, 2, RoundingMode.UNNECESSARY)).isEqualTo(MinorUnits.INVALID);
+    }
+
+    @Test
+    public void testCurrencyWithoutMinorUnit() {
+        // Yen-like currency: scale 0, its own coins, and a non-canonical set
+        Denominations yen = new Denominations(0, new int[]{1, 5, 10, 50, 100, 500, 1000, 40});
+        MetricRegistry registry = new MetricRegistry();
+        CoinChangeService service = new CoinChangeService(new DpTableCache(4, 1_000_000, new MetricRegistry()),
+                new CoinChangeMetrics(registry), 100_000, null, null, ParallelDp.SEQUENTIAL, yen);
+        assertThat(service.maxAmountCents()).isEqualTo(100_000);
+        assertThat(service.maxAlternativesCents()).isEqualTo(1000);
+        assertThat(service.calculateMinCoins(80, List.of(1.0, 40.0, 50.0))).containsExactly(40.0, 40.0);
+        // Amount buckets are in major units: 80 yen is bucketed with 80.00 euros, not with 0.80
+        assertThat(registry.timer(CoinChangeService.class.getName() + ".solve.dp-cached.amount-le-100.coins-3")
+                .getCount()).isEqualTo(1);
+        assertThat(yen.bit(0.5)).isEqualTo(-1);
+        assertThatThrownBy(() -> service.calculateMinCoins(3, List.of(0.01)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Startup preparation warms the DP table of the non-canonical set only
+        int nonCanonical = yen.mask(new int[]{1, 40, 50}, 3);
+        assertThat(service.prepare(List.of(List.of(1.0, 40.0, 50.0), List.of(1.0, 5.0)), true)).isEqualTo(1);
+        assertThat(service.dpWork(99_999, nonCanonical)).isZero();
+        assertThat(service.toCountMap(service.solveByMask(1090, nonCanonical), nonCanonical))
+                .containsEntry(50.0, 21).containsEntry(40.0, 1);
+    }
+
+    /** Reference bounded DP expanding every available coin into its own 0/1 item. */
+    private static int[] naiveBoundedMinCoins(int maxAmount, int[] coins, int[] available) {
+        int[] dp = new int[maxAmount + 1];
+        java.util.Arrays.fill(dp, Integer.MAX_VALUE);
+        dp[0] = 0;
+        for (int j = 0; j < coins.length; j++) {
+            for (int copy = 0; copy < available[j]; copy++) {
+                for (int i = maxAmount; i >= coins[j]; i--) {
+                    if (dp[i - coins[j]] != Integer.MAX_VALUE) dp[i] = Math.min(dp[i], dp[i - coins[j]] + 1);
+                }
+            }
+        }
+        return dp;
+    }
+
+    /** Reference O(A × n) DP without any reduction. */
+    private static int[] minCoinCounts(int maxAmount, int[] coins) {
+        int[] dp = new int[maxAmount + 1];
+        java.util.Arrays.fill(dp, Integer.MAX_VALUE);
+        dp[0] = 0;
+        for (int i = 1; i <= maxAmount; i++) {
+            for (int c : coins) {
+                if (c <= i && dp[i - c] != Integer.MAX_VALUE) dp[i] = Math.min(dp[i], dp[i - c] + 1);
+            }
+        }
+        return dp;
+    }
+
 }
@@ -0,0 +1,81 @@
+package org.example.coinchangeservice;
+
+import com.codahale.metrics.MetricRegistry;
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.DpTableCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DpTableCacheTest {
+
+    private MetricRegistry metrics;
+    private DpTableCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        metrics = new MetricRegistry();
+        cache = new DpTableCache(2, 1_000_000, metrics);
+    }
+
+    @Test
+    public void testCachedResultsMatchUncachedDP() {
+        CoinChangeService cached = new CoinChangeService(cache);
+        CoinChangeService uncached = new CoinChangeService();
+        List<Double> coins = List.of(0.2, 0.01, 0.5, 1.0);
+
+        for (double amount : new double[]{0.6, 7.03, 0.01, 123.45, 99.99}) {
+            assertThat(cached.calculateMinCoins(amount, coins, false))
+                    .hasSameSizeAs(uncached.calculateMinCoins(amount, coins, false));
+        }
+    }
+
+    @Test
+    public void testHitsMissesAndExtensions() {
+        int[] coins = {1, 20, 50};
+
+        assertThat(cache.counts(60, coins)).containsExactly(0, 3, 0);
+        assertThat(cache.counts(40, coins)).containsExactly(0, 2, 0);
+        assertThat(cache.counts(61, coins)).containsExactly(1, 3, 0);
+
+        assertThat(metrics.meter("org.example.coinchangeservice.service.DpTableCache.misses").getCount()).isEqualTo(1);
+        assertThat(metrics.meter("org.example.coinchangeservice.service.DpTableCache.hits").getCount()).isEqualTo(1);
+        assertThat(metrics.meter("org.example.coinchangeservice.service.DpTableCache.extensions").getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTableIsEvicted() {
+        cache.counts(100, new int[]{1, 5});
+        cache.counts(100, new int[]{1, 10});
+        cache.counts(100, new int[]{1, 5});
+        cache.counts(100, new int[]{1, 20});
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(metrics.meter("org.example.coinchangeservice.service.DpTableCache.evictions").getCount()).isEqualTo(1);
+
+        // {1, 5} was used more recently than {1, 10}, so it is still cached
+        cache.counts(100, new int[]{1, 5});
+        assertThat(metrics.meter("org.example.coinchangeservice.service.DpTableCache.misses").getCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void testLimitProbeIsNotAUse() {
+        cache.counts(100, new int[]{1, 5});
+        cache.counts(100, new int[]{1, 10});
+        assertThat(cache.limit(new int[]{1, 5})).isEqualTo(100);
+        assertThat(cache.limit(new int[]{1, 20})).isEqualTo(-1);
+        cache.counts(100, new int[]{1, 20});
+
+        // The probe did not make {1, 5} recently used, so it was evicted before {1, 10}
+        assertThat(cache.limit(new int[]{1, 5})).isEqualTo(-1);
+        assertThat(cache.limit(new int[]{1, 10})).isEqualTo(100);
+    }
+
+    @Test
+    public void testNoSolution() {
+        assertThat(cache.counts(7, new int[]{2})).isNull();
+    }
+}
@@ -0,0 +1,197 @@
+package org.example.coinchangeservice;
+
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.Denominations;
+import org.example.coinchangeservice.service.Drawer;
+import org.example.coinchangeservice.service.DrawerJournal;
+import org.example.coinchangeservice.service.DrawerRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DrawerRegistryTest {
+
+    private static final int CENT = Denominations.DEFAULT.bit(1);
+    private static final int TEN_CENTS = Denominations.DEFAULT.bit(10);
+    private static final int FIFTY_CENTS = Denominations.DEFAULT.bit(50);
+
+    private final CoinChangeService service = new CoinChangeService();
+
+    @Test
+    public void testDispense_usesInventoryAndFailsWhenItRunsOut() {
+        DrawerRegistry registry = new DrawerRegistry(service);
+        Drawer drawer = registry.getOrCreate("lane-1");
+        drawer.replace(coins(30, 1, 1));
+
+        // Greedy would take 0.50 + 2 x 0.10 + 5 x 0.01, but there is only one 0.10
+        Drawer.Dispensed dispensed = drawer.dispense(75, Denominations.DEFAULT.all());
+        assertThat(dispensed.count(FIFTY_CENTS)).isEqualTo(1);
+        assertThat(dispensed.count(TEN_CENTS)).isEqualTo(1);
+        assertThat(dispensed.count(CENT)).isEqualTo(15);
+        assertThat(dispensed.remaining().count(CENT)).isEqualTo(15);
+        assertThat(dispensed.remaining().version()).isEqualTo(2);
+
+        assertThat(drawer.dispense(16, Denominations.DEFAULT.all())).isNull();
+        assertThat(drawer.inventory()).isSameAs(dispensed.remaining());
+
+        // Nothing to hand out: the inventory is left as is, without a new version
+        assertThat(drawer.dispense(0, Denominations.DEFAULT.all()).remaining()).isSameAs(dispensed.remaining());
+        assertThat(drawer.inventory()).isSameAs(dispensed.remaining());
+    }
+
+    @Test
+    public void testConcurrentDispensingNeverOverdraws() throws Exception {
+        DrawerRegistry registry = new DrawerRegistry(service);
+        Drawer drawer = registry.getOrCreate("shared");
+        drawer.replace(coins(1000, 100, 40));
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> lanes = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                lanes.add(executor.submit(() -> {
+                    start.await();
+                    long handedOut = 0;
+                    for (int i = 0; i < 200; i++) {
+                        Drawer.Dispensed dispensed = drawer.dispense(37, Denominations.DEFAULT.all());
+                        if (dispensed != null) {
+                            handedOut += dispensed.count(CENT) + 10L * dispensed.count(TEN_CENTS)
+                                    + 50L * dispensed.count(FIFTY_CENTS);
+                        }
+                    }
+                    return handedOut;
+                }));
+            }
+            start.countDown();
+            long handedOut = 0;
+            for (Future<Long> lane : lanes) {
+                handedOut += lane.get();
+            }
+
+            Drawer.Inventory left = drawer.inventory();
+            assertThat(left.count(CENT)).isNotNegative();
+            assertThat(left.count(TEN_CENTS)).isNotNegative();
+            long remaining = left.count(CENT) + 10L * left.count(TEN_CENTS) + 50L * left.count(FIFTY_CENTS);
+            assertThat(handedOut + remaining).isEqualTo(1000 + 10 * 100 + 50 * 40);
+            assertThat(handedOut % 37).isZero();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testJournal_restoresDrawersAndCompacts(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("drawers.journal");
+        try (DrawerJournal journal = DrawerJournal.open(file, 3)) {
+            DrawerRegistry registry = new DrawerRegistry(service, journal);
+            registry.getOrCreate("a").replace(coins(10, 10, 10));
+            registry.getOrCreate("b").replace(coins(1, 0, 0));
+            registry.drawer("a").dispense(60, Denominations.DEFAULT.all());  // third line: compacted to two
+            registry.drawer("a").deposit(coins(0, 0, 1));
+        }
+        assertThat(Files.readAllLines(file)).hasSize(3);
+        // A crash in the middle of a line leaves a torn tail
+        Files.writeString(file, "a 9 1 2", StandardOpenOption.APPEND);
+
+        try (DrawerJournal journal = DrawerJournal.open(file, 3)) {
+            DrawerRegistry restored = new DrawerRegistry(service, journal);
+            Drawer.Inventory a = restored.drawer("a").inventory();
+            assertThat(a.version()).isEqualTo(3);
+            assertThat(a.count(CENT)).isEqualTo(10);
+            assertThat(a.count(TEN_CENTS)).isEqualTo(9);
+            assertThat(a.count(FIFTY_CENTS)).isEqualTo(10);
+            assertThat(restored.drawer("b").inventory().count(CENT)).isEqualTo(1);
+
+            restored.drawer("b").deposit(coins(1, 0, 0));
+        }
+        try (DrawerJournal journal = DrawerJournal.open(file, 3)) {
+            assertThat(new DrawerRegistry(service, journal).drawer("b").inventory().count(CENT)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void testJournal_tornLastLineDroppedCorruptionRefused(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("drawers.journal");
+        // A crash can leave a partial line, or bytes of a line that never made it, at the end of the file
+        Files.writeString(file, "a 1 5 0 0 0 0 0 0 0 0 0 0 0\na 2 4 0 0 0 0 0 0 0 0 0 0 0\na 3 4 0\u0000\u0000\n");
+        try (DrawerJournal journal = DrawerJournal.open(file, 1000)) {
+            Drawer a = new DrawerRegistry(service, journal).drawer("a");
+            assertThat(a.inventory().version()).isEqualTo(2);
+            a.deposit(coins(1, 0, 0));
+        }
+        assertThat(Files.readAllLines(file)).hasSize(3).last().asString().startsWith("a 3 5 ");
+
+        Files.writeString(file, "a 1 5 0 0 0 0 0 0 0 0 0 0 0\na 2 x\na 3 4 0 0 0 0 0 0 0 0 0 0 0\n");
+        assertThatThrownBy(() -> DrawerJournal.open(file, 1000))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Corrupt drawer journal " + file + " at line 2");
+    }
+
+    @Test
+    public void testJournal_writtenBeforePublishing(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("drawers.journal");
+        DrawerJournal journal = DrawerJournal.open(file, 1000);
+        DrawerRegistry registry = new DrawerRegistry(service, journal);
+        Drawer shared = registry.getOrCreate("shared");
+        shared.replace(coins(1000, 100, 40));
+
+        // Lanes on several drawers append concurrently; every published inventory is in the journal
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> lanes = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                Drawer own = registry.getOrCreate("lane-" + t);
+                lanes.add(executor.submit(() -> {
+                    for (int i = 0; i < 50; i++) {
+                        shared.dispense(37, Denominations.DEFAULT.all());
+                        own.deposit(coins(1, 0, 0));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> lane : lanes) {
+                lane.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        shared.replace(coins(100, 10, 4));
+        Drawer.Inventory published = shared.inventory();
+
+        // A failed append publishes nothing: the coins stay in the drawer
+        journal.close();
+        assertThatThrownBy(() -> shared.dispense(37, Denominations.DEFAULT.all()))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(shared.inventory()).isSameAs(published);
+
+        try (DrawerJournal reopened = DrawerJournal.open(file, 1000)) {
+            DrawerRegistry restored = new DrawerRegistry(service, reopened);
+            assertThat(restored.drawer("shared").inventory()).hasToString(published.toString());
+            assertThat(restored.drawer("lane-7").inventory().count(CENT)).isEqualTo(50);
+        }
+    }
+
+    private static int[] coins(int cents, int tenCents, int fiftyCents) {
+        int[] coins = new int[Denominations.DEFAULT.size()];
+        coins[CENT] = cents;
+        coins[TEN_CENTS] = tenCents;
+        coins[FIFTY_CENTS] = fiftyCents;
+        return coins;
+    }
+}
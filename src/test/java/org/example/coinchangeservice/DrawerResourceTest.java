@@ -0,0 +1,153 @@
+package org.example.coinchangeservice;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import io.dropwizard.testing.junit5.ResourceExtension;
+import org.example.coinchangeservice.resources.DrawerResource;
+import org.example.coinchangeservice.service.CoinChangeMetrics;
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.example.coinchangeservice.service.DrawerRegistry;
+import org.glassfish.jersey.test.grizzly.GrizzlyWebTestContainerFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class DrawerResourceTest {
+
+    private static final CoinChangeService service = new CoinChangeService();
+
+    private static final ResourceExtension RESOURCES = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new DrawerResource(new DrawerRegistry(service), service))
+            .build();
+
+    /** Amounts up to 100,000.00, one compute thread and one queue slot, and every bounded DP goes to the pool. */
+    private static final CoinChangeService largeAmounts =
+            new CoinChangeService(null, new CoinChangeMetrics(new MetricRegistry()), 100_000);
+    private static final ThreadPoolExecutor computeExecutor =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+
+    private static final ResourceExtension POOLED_RESOURCES = ResourceExtension.builder()
+            .setTestContainerFactory(new GrizzlyWebTestContainerFactory())
+            .addResource(new DrawerResource(new DrawerRegistry(largeAmounts), largeAmounts, computeExecutor, 0, 7,
+                    Duration.ofSeconds(30)))
+            .build();
+
+    @Test
+    public void testStockDispenseAndDeposit() {
+        Response stocked = RESOURCES.target("/drawers/lane-1").request(MediaType.APPLICATION_JSON)
+                .put(Entity.json("{\"0.01\":30,\"0.1\":1,\"0.5\":1}"));
+        assertThat(stocked.getStatus()).isEqualTo(200);
+
+        Response dispensed = RESOURCES.target("/drawers/lane-1/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":0.75}"));
+        assertThat(dispensed.getStatus()).isEqualTo(200);
+        Map<String, Object> result = dispensed.readEntity(Map.class);
+        assertThat(result.get("dispensed")).isEqualTo(Map.of("0.01", 15, "0.1", 1, "0.5", 1));
+        assertThat((Map<String, Object>) result.get("drawer")).containsEntry("version", 2)
+                .containsEntry("inventory", Map.of("0.01", 15));
+
+        Response cannot = RESOURCES.target("/drawers/lane-1/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":0.16}"));
+        assertThat(cannot.getStatus()).isEqualTo(409);
+
+        Response deposited = RESOURCES.target("/drawers/lane-1/deposit").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"0.1\":2}"));
+        assertThat(deposited.readEntity(Map.class).get("inventory")).isEqualTo(Map.of("0.01", 15, "0.1", 2));
+    }
+
+    @Test
+    public void testUnknownDrawerAndInvalidInput() {
+        assertThat(RESOURCES.target("/drawers/nope").request().get().getStatus()).isEqualTo(404);
+        assertThat(RESOURCES.target("/drawers/nope/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":1}")).getStatus()).isEqualTo(404);
+
+        Response invalid = RESOURCES.target("/drawers/lane-2").request(MediaType.APPLICATION_JSON)
+                .put(Entity.json("{\"0.03\":1}"));
+        assertThat(invalid.getStatus()).isEqualTo(400);
+        assertThat(invalid.readEntity(Map.class).get("error")).isEqualTo("Invalid coin denomination: 0.03");
+    }
+
+    @Test
+    public void testDispenseAmountIsExact() {
+        RESOURCES.target("/drawers/lane-3").request(MediaType.APPLICATION_JSON)
+                .put(Entity.json("{\"0.01\":5,\"1\":5}"));
+
+        // 1.005 as a double is just below 1.005, and Math.round(1.005 * 100) gives 100; the decimal rounds to 101
+        Response dispensed = RESOURCES.target("/drawers/lane-3/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":1.005}"));
+        assertThat(dispensed.getStatus()).isEqualTo(200);
+        assertThat(dispensed.readEntity(Map.class).get("dispensed")).isEqualTo(Map.of("0.01", 1, "1.0", 1));
+
+        assertThat(RESOURCES.target("/drawers/lane-3/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":-0.01}")).getStatus()).isEqualTo(400);
+        assertThat(RESOURCES.target("/drawers/lane-3/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":1e30}")).getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    public void testTooLargeForTheInventory() {
+        // One 2.00 coin: nearly all of 50,000.00 would have to come from a bounded DP over cents
+        POOLED_RESOURCES.target("/drawers/safe").request(MediaType.APPLICATION_JSON)
+                .put(Entity.json("{\"0.01\":5000000,\"2\":1}"));
+        Response tooLarge = POOLED_RESOURCES.target("/drawers/safe/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":50000}"));
+        assertThat(tooLarge.getStatus()).isEqualTo(422);
+        assertThat(POOLED_RESOURCES.target("/drawers/safe").request().get().readEntity(Map.class))
+                .containsEntry("version", 1);
+    }
+
+    @Test
+    public void testDispenseAdmittedThroughComputePool() throws Exception {
+        POOLED_RESOURCES.target("/drawers/pooled").request(MediaType.APPLICATION_JSON)
+                .put(Entity.json("{\"0.01\":30,\"0.1\":1,\"0.5\":1}"));
+        // Greedy does not fit the inventory, so this needs the bounded DP and runs on the pool
+        assertThat(POOLED_RESOURCES.target("/drawers/pooled/dispense").request(MediaType.APPLICATION_JSON)
+                .post(Entity.json("{\"targetAmount\":0.75}")).getStatus()).isEqualTo(200);
+        while (computeExecutor.getActiveCount() > 0) {
+            Thread.sleep(1);
+        }
+
+        // Occupy the only worker and the only queue slot
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        computeExecutor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        computeExecutor.execute(() -> { });
+        try {
+            POOLED_RESOURCES.target("/drawers/pooled").request(MediaType.APPLICATION_JSON)
+                    .put(Entity.json("{\"0.01\":30,\"0.1\":1,\"0.5\":1}"));
+            Response busy = POOLED_RESOURCES.target("/drawers/pooled/dispense").request(MediaType.APPLICATION_JSON)
+                    .post(Entity.json("{\"targetAmount\":0.75}"));
+            assertThat(busy.getStatus()).isEqualTo(503);
+            assertThat(busy.getHeaderString("Retry-After")).isEqualTo("7");
+
+            // Nothing was taken out, and greedy dispenses do not wait for the pool
+            Response greedy = POOLED_RESOURCES.target("/drawers/pooled/dispense").request(MediaType.APPLICATION_JSON)
+                    .post(Entity.json("{\"targetAmount\":0.6}"));
+            assertThat(greedy.getStatus()).isEqualTo(200);
+            assertThat(greedy.readEntity(Map.class).get("dispensed")).isEqualTo(Map.of("0.1", 1, "0.5", 1));
+        } finally {
+            release.countDown();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.coinchangeservice;
+
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@code lazyStartup: true}: the deferred CORS filter and health check still work once used, and the startup
+ * gauges are reported.
+ */
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class LazyStartupTest {
+
+    private static final DropwizardAppExtension<CoinChangeConfiguration> APP = new DropwizardAppExtension<>(
+            CoinChangeApplication.class, "config.yml",
+            ConfigOverride.config("lazyStartup", "true"),
+            // The readiness self-test runs on a cold JVM here, so only its wiring is checked, not its speed
+            ConfigOverride.config("readinessSelfTestBudget", "10s"),
+            ConfigOverride.config("server.applicationConnectors[0].port", "0"),
+            ConfigOverride.config("server.adminConnectors[0].port", "0"));
+
+    @Test
+    public void testDeferredSetupAndStartupMetrics() throws Exception {
+        String api = "http://localhost:" + APP.getLocalPort();
+        assertThat(APP.getEnvironment().metrics().getGauges().get(
+                "org.example.coinchangeservice.resources.CoinChangeResource.startup.timeToFirstRequest").getValue())
+                .isNotNull();
+
+        // The JAX-RS client drops Origin (a restricted header of HttpURLConnection)
+        HttpResponse<Void> preflight = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(api + "/coin-change"))
+                        .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
+                        .header("Origin", "http://example.com")
+                        .header("Access-Control-Request-Method", "POST")
+                        .build(),
+                HttpResponse.BodyHandlers.discarding());
+        assertThat(preflight.headers().firstValue("Access-Control-Allow-Origin")).hasValue("http://example.com");
+
+        Response change = APP.client().target(api + "/coin-change").request()
+                .post(Entity.json("{\"targetAmount\":0.6,\"coinDenominations\":[0.01,0.2,0.5]}"));
+        assertThat(change.getStatus()).isEqualTo(200);
+        assertThat((Long) APP.getEnvironment().metrics().getGauges().get(
+                "org.example.coinchangeservice.resources.CoinChangeResource.startup.timeToFirstRequest").getValue())
+                .isPositive();
+        assertThat((Long) APP.getEnvironment().metrics().getGauges().get(
+                "org.example.coinchangeservice.CoinChangeApplication.startup.timeToStarted").getValue())
+                .isPositive();
+
+        Response health = APP.client().target("http://localhost:" + APP.getAdminPort() + "/healthcheck").request()
+                .get();
+        assertThat(health.getStatus()).isEqualTo(200);
+        assertThat(health.readEntity(String.class)).contains("\"coinChange\":{\"healthy\":true")
+                .contains("\"readiness\":{\"healthy\":true");
+    }
+}
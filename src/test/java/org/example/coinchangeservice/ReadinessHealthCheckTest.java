@@ -0,0 +1,98 @@
+package org.example.coinchangeservice;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheck;
+import org.example.coinchangeservice.health.ReadinessHealthCheck;
+import org.example.coinchangeservice.service.CoinChangeService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadinessHealthCheckTest {
+
+    private final ManualClock clock = new ManualClock();
+    private final Timer computation = new Timer(new SlidingTimeWindowArrayReservoir(1, TimeUnit.MINUTES, clock));
+
+    @Test
+    public void testReadyAndCachedPerInterval() {
+        HealthCheck check = new ReadinessHealthCheck(new CoinChangeService(), null, computation,
+                Duration.ofSeconds(10), Duration.ofSeconds(1), 0.9, Duration.ofMinutes(1));
+
+        HealthCheck.Result result = check.execute();
+        assertThat(result.isHealthy()).isTrue();
+        assertThat(result.getDetails()).containsEntry("state", "ready").containsEntry("computeSaturation", 0.0)
+                .containsEntry("computationSamples", 0)
+                .containsKeys("selfTestGreedyMicros", "selfTestDpMicros", "computationP99Millis");
+        // The DP probe is not shrunk by the large-amount reduction: it fills one cell per amount and coin
+        assertThat((long) result.getDetails().get("selfTestDpCells")).isEqualTo((99_960 + 1) * 4);
+        // Within the interval the same result is returned without another self-test
+        assertThat(check.execute()).isSameAs(result);
+    }
+
+    @Test
+    public void testDegradedOverBudget() throws Exception {
+        HealthCheck slowSelfTest = new ReadinessHealthCheck(new CoinChangeService(), null, computation,
+                Duration.ZERO, Duration.ofSeconds(1), 0.9, Duration.ZERO);
+        assertThat(slowSelfTest.execute().isHealthy()).isFalse();
+        assertThat(slowSelfTest.execute().getDetails()).containsEntry("state", "degraded");
+        assertThat(slowSelfTest.execute().getMessage()).startsWith("Self-test took");
+
+        computation.update(2, TimeUnit.SECONDS);
+        HealthCheck slowRequests = new ReadinessHealthCheck(new CoinChangeService(), null, computation,
+                Duration.ofSeconds(10), Duration.ofSeconds(1), 0.9, Duration.ZERO);
+        assertThat(slowRequests.execute().getMessage()).isEqualTo("Computation p99 is 2000 ms");
+        // Without traffic the slow sample leaves the window and the instance is ready again
+        clock.advance(TimeUnit.MINUTES.toNanos(2));
+        assertThat(slowRequests.execute().isHealthy()).isTrue();
+
+        // One busy thread and a full queue of one slot
+        ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            started.await();
+            executor.execute(() -> { });
+            HealthCheck saturated = new ReadinessHealthCheck(new CoinChangeService(), executor,
+                    new MetricRegistry().timer("computation"), Duration.ofSeconds(10), Duration.ofSeconds(1), 0.9,
+                    Duration.ZERO);
+            HealthCheck.Result result = saturated.execute();
+            assertThat(result.isHealthy()).isFalse();
+            assertThat(result.getMessage()).isEqualTo("Compute pool is 100% full");
+            assertThat(result.getDetails()).containsEntry("computeSaturation", 1.0);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static class ManualClock extends Clock {
+        private long nanos;
+
+        void advance(long delta) {
+            nanos += delta;
+        }
+
+        @Override
+        public long getTick() {
+            return nanos;
+        }
+    }
+}
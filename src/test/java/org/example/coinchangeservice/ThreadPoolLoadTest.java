@@ -0,0 +1,142 @@
+package org.example.coinchangeservice;
+
+import io.dropwizard.testing.ConfigOverride;
+import io.dropwizard.testing.DropwizardTestSupport;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares throughput and p99 latency of the default Jetty thread pool with {@code server: type: virtual-threads}
+ * under many concurrent clients, on a mix of greedy requests and uncached DP requests.
+ * Excluded from the default build; run with {@code mvn -Pload test}.
+ */
+@Tag("load")
+public class ThreadPoolLoadTest {
+
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+
+    @Test
+    public void compareDefaultAndVirtualThreadPools() throws Exception {
+        Result platform = run("default");
+        System.out.println(platform);
+        assertThat(platform.ok).isPositive();
+
+        if (!VirtualThreads.isSupported()) {
+            System.out.println("virtual-threads: skipped, JDK " + Runtime.version() + " has no virtual threads");
+            return;
+        }
+        Result virtual = run("virtual-threads");
+        System.out.println(virtual);
+        assertThat(virtual.ok).isPositive();
+    }
+
+    private static Result run(String serverType) throws Exception {
+        DropwizardTestSupport<CoinChangeConfiguration> app = new DropwizardTestSupport<>(
+                CoinChangeApplication.class, "config.yml",
+                ConfigOverride.config("server.type", serverType),
+                ConfigOverride.config("server.applicationConnectors[0].port", "0"),
+                ConfigOverride.config("server.adminConnectors[0].port", "0"),
+                ConfigOverride.config("maxConcurrentDp", "4"));
+        app.before();
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            URI uri = URI.create("http://localhost:" + app.getLocalPort() + "/coin-change");
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+
+            long end = System.nanoTime() + Duration.ofSeconds(SECONDS).toNanos();
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int c = 0; c < CLIENTS; c++) {
+                futures.add(clients.submit(() -> client(http, uri, end)));
+            }
+
+            List<Long> latencies = new ArrayList<>();
+            int rejected = 0;
+            for (Future<long[]> future : futures) {
+                for (long latency : future.get()) {
+                    if (latency < 0) {
+                        rejected++;
+                    } else {
+                        latencies.add(latency);
+                    }
+                }
+            }
+            long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            return new Result(serverType, sorted.length, rejected, sorted);
+        } finally {
+            clients.shutdownNow();
+            app.after();
+        }
+    }
+
+    /**
+     * Sends requests back to back until {@code end}: nine greedy requests for every uncached DP request.
+     *
+     * @return latencies in nanoseconds of successful requests, -1 for rejected (503) ones
+     */
+    private static long[] client(HttpClient http, URI uri, long end) throws Exception {
+        long[] latencies = new long[1024];
+        int count = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            boolean dp = random.nextInt(10) == 0;
+            String body = String.format(Locale.US, "{\"targetAmount\":%.2f,\"coinDenominations\":%s}",
+                    random.nextInt(1, 1_000_000) / 100.0, dp ? "[0.01,0.2,0.5]" : "[0.01,0.05,0.1,1,5]");
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+
+            long start = System.nanoTime();
+            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            long latency = System.nanoTime() - start;
+            assertThat(status).isIn(200, 503);
+
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = status == 200 ? latency : -1;
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static final class Result {
+        final String serverType;
+        final int ok;
+        final int rejected;
+        final long[] sortedLatencies;
+
+        Result(String serverType, int ok, int rejected, long[] sortedLatencies) {
+            this.serverType = serverType;
+            this.ok = ok;
+            this.rejected = rejected;
+            this.sortedLatencies = sortedLatencies;
+        }
+
+        @Override
+        public String toString() {
+            long p99 = sortedLatencies.length == 0 ? 0 : sortedLatencies[(int) (sortedLatencies.length * 0.99)];
+            return String.format(Locale.US, "%s: %,.0f req/s, p99 %.2f ms, %d rejected (%d clients, %d s)",
+                    serverType, ok / (double) SECONDS, p99 / 1e6, rejected, CLIENTS, SECONDS);
+        }
+    }
+}